@@ -0,0 +1,184 @@
+package pegboard;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The MoveBenchmark class measures the throughput of the move generation methods searches call for every node
+ * Each benchmark works on a sample of positions reached by random play from the starting board, so boards early and late in a game are both measured
+ * Run with the gc profiler to also report the allocation rate, see the README for the command line
+ *
+ * @author Ben Bissantz
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class MoveBenchmark {
+
+	/**
+	 * Number of positions sampled from each board
+	 */
+	static final int SAMPLES = 64;
+
+	/**
+	 * Declare variables for the MoveBenchmark class
+	 * board is the name of a pegboard file in the directory given by the pegboard.boards system property
+	 * positions hold the sampled positions and moves holds one legal move of each position, both are used in turn
+	 */
+	@Param({"5x5.txt", "7x7.txt", "10x10.txt", "bonus6.txt"})
+	String board;
+	State[] positions;
+	int[] moves;
+	int[] buffer;
+	int next;
+
+	/**
+	 * Read the board and sample positions by playing random moves until no moves remain
+	 * Only positions with at least one legal move are kept
+	 * @throws FileNotFoundException if the board file can not be found
+	 */
+	@Setup
+	public void setup() throws FileNotFoundException {
+		State start = load(board);
+		buffer = new int[start.layout.maxMoves];
+		ArrayList<State> found = new ArrayList<State>();
+		ArrayList<Integer> foundMoves = new ArrayList<Integer>();
+		Random random = new Random(580);
+		while (found.size() < SAMPLES) {
+			State s = start.copy();
+			int count = s.moves(buffer);
+			if (count == 0) throw new IllegalStateException(board + " has no legal moves");
+			while (count > 0 && found.size() < SAMPLES) {
+				int move = buffer[random.nextInt(count)];
+				found.add(s.copy());
+				foundMoves.add(move);
+				s.play(move);
+				count = s.moves(buffer);
+			}
+		}
+		positions = found.toArray(new State[0]);
+		moves = new int[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) moves[i] = foundMoves.get(i);
+	}
+
+	/**
+	 * Read a pegboard file from the directory given by the pegboard.boards system property, the working directory by default
+	 * The moves of the board are selected by topology
+	 * @param board name of the pegboard file
+	 * @return initial pegboard state
+	 * @throws FileNotFoundException if the board file can not be found
+	 */
+	static State load(String board) throws FileNotFoundException {
+		try (Scanner input = new Scanner(new File(System.getProperty("pegboard.boards", "."), board))) {
+			State start = GameInputOutput.readBoard(input);
+			start.layout.setTopology(topology(board));
+			return start;
+		}
+	}
+
+	/**
+	 * Moves allowed on a shipped pegboard, bonus6 is the triangular board entered with each row starting in the first column
+	 * @param board name of the pegboard file
+	 * @return topology of the board
+	 */
+	static Topology topology(String board) {
+		return board.equals("bonus6.txt") ? Topology.HEX : Topology.ORTHOGONAL;
+	}
+
+	/**
+	 * @return index of the next sampled position
+	 */
+	private int next() {
+		next = (next + 1) & (SAMPLES - 1);
+		return next;
+	}
+
+	/**
+	 * Copy a state the way the original peg movements did before changing the child
+	 */
+	@Benchmark
+	public State createChild() {
+		return positions[next()].createChild();
+	}
+
+	/**
+	 * Create the child state reached by a packed move
+	 */
+	@Benchmark
+	public State createChildMove() {
+		int i = next();
+		return positions[i].createChild(moves[i]);
+	}
+
+	/**
+	 * Validate every peg movement of a position and create the child of each valid one, the way the original successor function did
+	 * The named lookX and moveX pairs delegate to look and move with a direction, so all directions of the layout are covered
+	 * @param bh blackhole consuming the child states
+	 */
+	@Benchmark
+	public void lookMove(Blackhole bh) {
+		State s = positions[next()];
+		for (int i = 0; i < s.layout.size; i++) {
+			for (int d : s.layout.directions) {
+				if (s.look(i, d)) bh.consume(s.move(i, d));
+			}
+		}
+	}
+
+	/**
+	 * List the packed moves of a position without creating child states, as the iterative searches do
+	 */
+	@Benchmark
+	public int moves() {
+		return positions[next()].moves(buffer);
+	}
+
+	/**
+	 * Create the list of all successor states of a position
+	 */
+	@Benchmark
+	public Object successor() {
+		return GameInputOutput.successor(positions[next()]);
+	}
+
+	/**
+	 * Count the heuristic value of a position from scratch
+	 */
+	@Benchmark
+	public int heuristic() {
+		return GameInputOutput.heuristic(positions[next()]);
+	}
+
+	/**
+	 * Play and take back a move in place, updating the heuristic value incrementally
+	 */
+	@Benchmark
+	public int playUndo() {
+		int i = next();
+		State s = positions[i];
+		s.play(moves[i]);
+		int value = s.heuristic;
+		s.undo(moves[i]);
+		return value;
+	}
+}
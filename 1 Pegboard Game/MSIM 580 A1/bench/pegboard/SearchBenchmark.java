@@ -0,0 +1,96 @@
+package pegboard;
+
+import java.io.FileNotFoundException;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The SearchBenchmark class measures complete time boxed searches of the shipped pegboards
+ * Each operation is one search, which ends when a one peg solution is found or the time budget expires
+ * The nodes counter reports the nodes explored, so searches that use their whole budget are compared by nodes per operation
+ *
+ * @author Ben Bissantz
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class SearchBenchmark {
+
+	/**
+	 * Declare variables for the SearchBenchmark class
+	 * method is a name from GameInputOutput.METHODS, budget is the maximum search time in milliseconds
+	 * table is created before each search so its allocation is not measured
+	 */
+	@Param({"5x5.txt", "7x7.txt", "10x10.txt", "bonus6.txt"})
+	String board;
+	@Param({"dfs", "gbfs", "astar"})
+	String method;
+	@Param({"1000"})
+	long budget;
+	@Param({"256"})
+	int tableMegabytes;
+	State start;
+	TranspositionTable table;
+
+	/**
+	 * The Nodes class reports the nodes explored by each search as a JMH counter
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@org.openjdk.jmh.annotations.State(Scope.Thread)
+	public static class Nodes {
+		public long nodes;
+	}
+
+	/**
+	 * Read the board
+	 * @throws FileNotFoundException if the board file can not be found
+	 */
+	@Setup(Level.Trial)
+	public void setup() throws FileNotFoundException {
+		start = MoveBenchmark.load(board);
+	}
+
+	/**
+	 * Create an empty table of repeated boards for the next search
+	 */
+	@Setup(Level.Invocation)
+	public void clearTable() {
+		table = new TranspositionTable(tableMegabytes);
+		table.add(start);
+	}
+
+	/**
+	 * Search the board once with the selected method
+	 * @param counter counter of the nodes explored
+	 * @return pegs remaining on the best board found
+	 */
+	@Benchmark
+	public int search(Nodes counter) {
+		LinkedList<State> current = new LinkedList<State>();
+		current.addFirst(start);
+		Path best = new Path(start);
+		Deadline deadline = new Deadline(budget);
+		GameInputOutput.search(Batch.method(method), current, best, table, new Pruning(), new Metrics(start, table, null), 1,
+				GameInputOutput.WEIGHT, GameInputOutput.WIDTH, deadline);
+		deadline.finish();
+		counter.nodes += best.nodes;
+		return best.pegs();
+	}
+}
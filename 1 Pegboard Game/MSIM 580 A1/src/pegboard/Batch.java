@@ -0,0 +1,277 @@
+package pegboard;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Locale;
+
+/**
+ * The Batch class runs a set of pegboard searches without prompting the user
+ * Every combination of board, search method, time budget and thread count is searched back to back in one JVM
+ * Boards are given as files, files holding several boards separated by blank lines, or folders of board files
+ * One row of results is written for each search as CSV or JSON lines
+ * Example: java pegboard/GameInputOutput --boards 5x5.txt,bonus3.txt --methods dfs,astar,pdfs --seconds 10 --threads 1,2,4 --format json
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Batch {
+
+	static final String USAGE = "Usage: java pegboard/GameInputOutput --boards file|folder,... [--methods dfs,bfs,gbfs,astar,pdfs,dbfs,count,wastar,beam,idastar]"
+			+ " [--seconds 60,...] [--threads 1,...] [--weight 2] [--width 1024] [--topology orthogonal|diagonal|hex] [--table megabytes] [--prune on|off] [--endgame file] [--progress off|text|json] [--format csv|json] [--output file]";
+
+	/**
+	 * Declare variables for the Batch class
+	 * threads only applies to the parallel search, the other searches run once on a single thread
+	 * weight only applies to the weighted A* search and width only to the beam search
+	 * prune turns on the pruners of Pruning.create, the boards each pruner rejects are counted in the results
+	 * endgame is the endgame table used for boards it was built for, other boards use the table named after the board file if one exists,
+	 * the table is consulted whether or not prune is on
+	 * progress is null for no progress output, otherwise text or json lines of progress are printed to the error stream
+	 */
+	ArrayList<String> boards = new ArrayList<String>();
+	ArrayList<Integer> methods = new ArrayList<Integer>();
+	ArrayList<Integer> seconds = new ArrayList<Integer>();
+	ArrayList<Integer> threads = new ArrayList<Integer>();
+	double weight = GameInputOutput.WEIGHT;
+	int width = GameInputOutput.WIDTH;
+	int tableMegabytes = 256;
+	boolean prune = false;
+	File endgame = null;
+	String progress = null;
+	Topology topology = Topology.ORTHOGONAL;
+	boolean json = false;
+	PrintStream output = System.out;
+	HashMap<String, Long> singleThreadRates = new HashMap<String, Long>();
+
+	/**
+	 * Parse the arguments and run every search they describe
+	 * @param args command line arguments
+	 */
+	public static void run(String[] args) {
+		Batch batch = new Batch();
+		try {
+			batch.parse(args);
+		} catch (Exception e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return;
+		}
+		batch.runAll();
+	}
+
+	/**
+	 * Read the options of a batch run
+	 * @param args command line arguments given as pairs of an option and its value
+	 * @throws FileNotFoundException if the output file can not be created
+	 */
+	void parse(String[] args) throws FileNotFoundException {
+		for (int a = 0; a < args.length; a += 2) {
+			if (a + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + args[a]);
+			String[] values = args[a + 1].split(",");
+			switch (args[a]) {
+				case "--boards":
+					for (String v : values) boards.add(v);
+					break;
+				case "--methods":
+					for (String v : values) methods.add(method(v));
+					break;
+				case "--seconds":
+					for (String v : values) seconds.add(Integer.parseInt(v));
+					break;
+				case "--threads":
+					for (String v : values) threads.add(Integer.parseInt(v));
+					break;
+				case "--weight":
+					weight = Double.parseDouble(args[a + 1]);
+					if (weight < 1) throw new IllegalArgumentException("Weight must be at least 1");
+					break;
+				case "--width":
+					width = Integer.parseInt(args[a + 1]);
+					if (width < 1) throw new IllegalArgumentException("Width must be at least 1");
+					break;
+				case "--table":
+					tableMegabytes = Integer.parseInt(args[a + 1]);
+					break;
+				case "--prune":
+					prune = args[a + 1].equalsIgnoreCase("on");
+					if (!prune && !args[a + 1].equalsIgnoreCase("off")) throw new IllegalArgumentException("Unknown pruning " + args[a + 1]);
+					break;
+				case "--endgame":
+					endgame = new File(args[a + 1]);
+					if (!endgame.exists()) throw new FileNotFoundException("No endgame table " + args[a + 1]);
+					break;
+				case "--progress":
+					progress = args[a + 1].equalsIgnoreCase("off") ? null : args[a + 1].toLowerCase();
+					if (progress != null && !progress.equals("text") && !progress.equals("json")) throw new IllegalArgumentException("Unknown progress " + args[a + 1]);
+					break;
+				case "--topology":
+					topology = Topology.parse(args[a + 1]);
+					break;
+				case "--format":
+					json = args[a + 1].equalsIgnoreCase("json");
+					if (!json && !args[a + 1].equalsIgnoreCase("csv")) throw new IllegalArgumentException("Unknown format " + args[a + 1]);
+					break;
+				case "--output":
+					output = new PrintStream(new File(args[a + 1]));
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option " + args[a]);
+			}
+		}
+		if (boards.isEmpty()) throw new IllegalArgumentException("No board files given");
+		if (methods.isEmpty()) methods.add(1);
+		if (seconds.isEmpty()) seconds.add(60);
+		if (threads.isEmpty()) threads.add(1);
+	}
+
+	/**
+	 * Find the number of a search method from its name or number
+	 * @param name name from GameInputOutput.METHODS or the number shown at the search method prompt
+	 * @return number of the search method
+	 */
+	static int method(String name) {
+		for (int m = 0; m < GameInputOutput.METHODS.length; m++) {
+			if (GameInputOutput.METHODS[m].equalsIgnoreCase(name) || String.valueOf(m + 1).equals(name)) return m + 1;
+		}
+		throw new IllegalArgumentException("Unknown search method " + name);
+	}
+
+	/**
+	 * Run every combination of board, method, time budget and thread count, writing one row for each
+	 * Boards are read by a BoardLoader on another thread while the searches run, so every board of a large batch is solved in this JVM
+	 */
+	void runAll() {
+		if (!json) output.println("board,method,threads,seconds,pegs,nodes,repeated,nodes_per_second,peak_heap_mb,wall_ms,speedup,pruned_endgame,pruned_isolated_pegs,pruned_pagoda,solutions,dead_ends");
+		BoardLoader loader = BoardLoader.start(boards);
+		try {
+			for (BoardLoader.Job job = loader.take(); job != BoardLoader.END; job = loader.take()) {
+				// Each board is read with its own Layout, the moves are selected once and every search of the board shares them
+				job.start.layout.setTopology(topology);
+				for (int method : methods) {
+					for (int budget : seconds) {
+						for (int t : threads) {
+							if (method != 5 && t != threads.get(0)) continue;
+							runOne(job.name, job.start, method, budget, method == 5 ? t : 1);
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		output.flush();
+	}
+
+	/**
+	 * Search one board and write a row of results
+	 * Progress is printed to the error stream when asked for so it does not mix with the results
+	 * @param board name of the board
+	 * @param loaded starting state of the board with its topology selected, each search starts from a copy
+	 * @param method number of the search method
+	 * @param budget maximum search time in seconds
+	 * @param t number of threads
+	 */
+	void runOne(String board, State loaded, int method, int budget, int t) {
+		State start = loaded.copy();
+		LinkedList<State> current = new LinkedList<State>();
+		current.addFirst(start);
+		Path best = new Path(start);
+		// Measure the peak heap use of this search only
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) pool.resetPeakUsage();
+		long startTime = System.currentTimeMillis();
+		Deadline deadline = new Deadline(budget * 1000L);
+		TranspositionTable table = new TranspositionTable(method == 7 ? 0 : tableMegabytes);
+		table.add(start);
+		Pruning pruning = Pruning.create(start, endgame(board, start), prune);
+		Metrics metrics = new Metrics(start, table, pruning);
+		Reporter reporter = progress == null ? null : Reporter.start(metrics, System.err, progress.equals("json"), Reporter.INTERVAL);
+		Counter counter = null;
+		try {
+			if (method == 7) {
+				counter = new Counter(start, tableMegabytes, metrics);
+				counter.count(best, deadline);
+			}
+			else GameInputOutput.search(method, current, best, table, pruning, metrics, t, weight, width, deadline);
+		} finally {
+			if (reporter != null) reporter.stop();
+			deadline.finish();
+		}
+		long wall = System.currentTimeMillis() - startTime;
+		writeRow(board, method, t, budget, best.pegs(), best.nodes, metrics.repeated(), pruning, counter, wall);
+	}
+
+	/**
+	 * Find the endgame table for a board, the table given by --endgame if it was built for the board, otherwise the table named
+	 * after the board file
+	 * @param board name of the board
+	 * @param start state the search begins with, its topology must already be selected
+	 * @return the endgame table, or null to search without one
+	 */
+	EndgameTable endgame(String board, State start) {
+		if (endgame != null) {
+			try {
+				return EndgameTable.open(endgame, start.layout);
+			} catch (IOException | IllegalArgumentException e) {
+				// The table was built for boards of another shape
+			}
+		}
+		return GameInputOutput.endgame(new File(board + ".egt"), start);
+	}
+
+	/**
+	 * Write a row of results, the speedup compares nodes per second with the single thread run of the same board, method and budget
+	 * The speedup is left empty for every method but the parallel search, which is the only one run on more than one thread
+	 * Numbers are written in the root locale so a decimal comma never splits a CSV column or breaks the JSON
+	 * @param board name of the board file
+	 * @param method number of the search method
+	 * @param t number of threads
+	 * @param budget maximum search time in seconds
+	 * @param pegs pegs remaining on the best board found
+	 * @param nodes number of nodes explored
+	 * @param repeated number of repeated boards skipped
+	 * @param pruning pruning stage of the search, holding the number of boards each pruner rejected
+	 * @param counter count of every solution and dead end, null for searches
+	 * @param wall milliseconds the search took
+	 */
+	void writeRow(String board, int method, int t, int budget, int pegs, long nodes, long repeated, Pruning pruning, Counter counter, long wall) {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+		}
+		long rate = nodes * 1000 / Math.max(1, wall);
+		String key = board + " " + method + " " + budget;
+		if (t == 1) singleThreadRates.put(key, rate);
+		Long single = singleThreadRates.get(key);
+		String speedup = method != 5 || single == null || single == 0 ? "" : String.format(Locale.ROOT, "%.2f", (double) rate / single);
+		String name = GameInputOutput.METHODS[method - 1];
+		long endgameTable = pruning.count("endgame table");
+		long isolatedPegs = pruning.count("isolated pegs");
+		long pagoda = pruning.count("pagoda functions");
+		// Counts are left empty for searches and for counts that did not finish
+		boolean counted = counter != null && counter.finished;
+		String solutions = counted ? String.valueOf(counter.solutions) : "";
+		String deadEnds = counted ? String.valueOf(counter.deadEnds) : "";
+		if (json) {
+			output.printf(Locale.ROOT, "{\"board\":\"%s\",\"method\":\"%s\",\"threads\":%d,\"seconds\":%d,\"pegs\":%d,\"nodes\":%d,\"repeated\":%d,"
+					+ "\"nodes_per_second\":%d,\"peak_heap_mb\":%d,\"wall_ms\":%d,\"speedup\":%s,"
+					+ "\"pruned_endgame\":%d,\"pruned_isolated_pegs\":%d,\"pruned_pagoda\":%d,\"solutions\":%s,\"dead_ends\":%s}\n",
+					board.replace("\\", "\\\\").replace("\"", "\\\""), name, t, budget, pegs, nodes, repeated, rate,
+					peak / 1024 / 1024, wall, speedup.isEmpty() ? "null" : speedup, endgameTable, isolatedPegs, pagoda,
+					counted ? solutions : "null", counted ? deadEnds : "null");
+		}
+		else {
+			output.printf(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%d,%d,%d,%d,%s,%d,%d,%d,%s,%s\n", board, name, t, budget, pegs, nodes, repeated, rate, peak / 1024 / 1024,
+					wall, speedup, endgameTable, isolatedPegs, pagoda, solutions, deadEnds);
+		}
+		output.flush();
+	}
+}
@@ -0,0 +1,209 @@
+package pegboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * The BoardLoader class reads pegboard input files on a background thread and queues a job for each board to be solved
+ * Files are mapped into memory and parsed byte by byte straight into the bits of a State, no line Strings are created
+ * A file may hold several boards separated by blank lines, and a folder is read as every .txt file it holds in order of name
+ * Every space must be 0 for an empty space, 1 for a peg or 8 for a space that is not part of the board, and every row must be
+ * as long as the first, boards that break these rules are reported on the error stream and skipped
+ * The first board of a file is named after the file, later boards of the same file add # and their number
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class BoardLoader implements Runnable {
+
+	/**
+	 * Boards read ahead of the searches, the loader waits when the queue is full so large batches do not fill the heap
+	 */
+	static final int CAPACITY = 64;
+
+	/**
+	 * Job queued after the last board
+	 */
+	static final Job END = new Job(null, null);
+
+	/**
+	 * The Job class is one board waiting to be solved
+	 */
+	static class Job {
+		final String name;
+		final State start;
+
+		/**
+		 * @param name name of the board used in results
+		 * @param start starting state of the board
+		 */
+		Job(String name, State start) {
+			this.name = name;
+			this.start = start;
+		}
+	}
+
+	/**
+	 * Declare variables for the BoardLoader class
+	 */
+	List<String> names;
+	BlockingQueue<Job> jobs = new ArrayBlockingQueue<Job>(CAPACITY);
+
+	/**
+	 * Start reading boards on a background thread
+	 * @param names board files or folders of board files
+	 * @return the running loader
+	 */
+	public static BoardLoader start(List<String> names) {
+		BoardLoader loader = new BoardLoader();
+		loader.names = names;
+		// A daemon thread never keeps the program running after the searches end
+		Thread t = new Thread(loader, "pegboard-loader");
+		t.setDaemon(true);
+		t.start();
+		return loader;
+	}
+
+	/**
+	 * Wait for the next board
+	 * @return next job, or END once every board has been read
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public Job take() throws InterruptedException {
+		return jobs.take();
+	}
+
+	/**
+	 * Read every file and folder, queueing END when done
+	 */
+	@Override
+	public void run() {
+		try {
+			for (String name : names) {
+				File file = new File(name);
+				if (file.isDirectory()) {
+					File[] files = file.listFiles((folder, n) -> n.endsWith(".txt"));
+					Arrays.sort(files);
+					for (File f : files) load(f);
+				}
+				else load(file);
+			}
+			jobs.put(END);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Read every board of a file and queue a job for each
+	 * @param file file to read
+	 * @throws InterruptedException if interrupted while waiting for room in the queue
+	 */
+	void load(File file) throws InterruptedException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			// Boards are queued as they are read so the searches can start before a large file is finished
+			for (int n = 1; in.hasRemaining(); n++) {
+				String name = n == 1 ? file.getPath() : file.getPath() + "#" + n;
+				try {
+					State start = read(in);
+					if (start != null) jobs.put(new Job(name, start));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Invalid pegboard " + name + ", " + e.getMessage());
+					skip(in);
+				}
+			}
+		} catch (IOException e) {
+			System.err.println("Invalid file name " + file);
+		}
+	}
+
+	/**
+	 * Read the next board from a buffer, skipping blank lines before it
+	 * The buffer is left after the blank line or end of the buffer that ends the board
+	 * @param in bytes of a board file
+	 * @return starting state of the board, or null if no board remains
+	 * @throws IllegalArgumentException if a space is not 0, 1 or 8, the rows differ in length or the board has too many spaces
+	 */
+	public static State read(ByteBuffer in) {
+		byte[] spaces = new byte[Layout.MAX_SPACES];
+		int size = 0;
+		int width = 0;
+		int height = 0;
+		int column = 0;
+		int pegs = 0;
+		long low = 0;
+		long high = 0;
+		while (in.hasRemaining()) {
+			byte c = in.get();
+			if (c == '\r') continue;
+			if (c == '\n') {
+				// A blank line ends a board, blank lines before a board are skipped
+				if (column == 0) {
+					if (height > 0) break;
+					continue;
+				}
+				if (height > 0 && column != width) throw new IllegalArgumentException("row " + (height + 1) + " has " + column + " spaces but row 1 has " + width);
+				width = column;
+				height++;
+				column = 0;
+				continue;
+			}
+			if (c != '0' && c != '1' && c != '8') {
+				throw new IllegalArgumentException("row " + (height + 1) + " column " + (column + 1) + " is '" + (char) c + "', spaces must be 0, 1 or 8");
+			}
+			if (size == Layout.MAX_SPACES) throw new IllegalArgumentException("a maximum area of " + Layout.MAX_SPACES + " spaces is allowed");
+			if (c == '1') {
+				if (size < 64) low |= 1L << size;
+				else high |= 1L << size;
+				pegs++;
+			}
+			spaces[size++] = c;
+			column++;
+		}
+		// The last row of a file may end without a new line
+		if (column > 0) {
+			if (height > 0 && column != width) throw new IllegalArgumentException("row " + (height + 1) + " has " + column + " spaces but row 1 has " + width);
+			width = column;
+			height++;
+		}
+		if (height == 0) return null;
+		if (height > Byte.MAX_VALUE || width > Byte.MAX_VALUE) throw new IllegalArgumentException("a maximum of " + Byte.MAX_VALUE + " rows and columns is allowed");
+		State start = new State();
+		start.height = (byte) height;
+		start.width = (byte) width;
+		start.nodes = 1;
+		start.layout = new Layout(start.height, start.width, new String(spaces, 0, size, StandardCharsets.US_ASCII));
+		start.low = low;
+		start.high = high;
+		start.pegs = (byte) pegs;
+		start.heuristic = GameInputOutput.heuristic(start);
+		return start;
+	}
+
+	/**
+	 * Move a buffer past the rest of a board that could not be read, up to the next blank line
+	 * @param in bytes of a board file
+	 */
+	static void skip(ByteBuffer in) {
+		// The board may have failed in the middle of a row or at the start of one
+		int column = in.position() > 0 && in.get(in.position() - 1) != '\n' ? 1 : 0;
+		while (in.hasRemaining()) {
+			byte c = in.get();
+			if (c == '\r') continue;
+			if (c == '\n') {
+				if (column == 0) return;
+				column = 0;
+			}
+			else column++;
+		}
+	}
+}
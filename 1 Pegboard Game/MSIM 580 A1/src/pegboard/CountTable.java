@@ -0,0 +1,103 @@
+package pegboard;
+
+/**
+ * The CountTable class remembers the number of solutions and dead ends below each board a count has finished
+ * Boards are stored as canonical bitboards, rotated or mirrored boards have the same numbers of solutions and dead ends
+ * Keys and counts are kept in one array of longs, so the table holds no objects and its memory use is fixed when it is created
+ * When a bucket is full an older board is evicted, its counts are found again the next time the board is reached
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class CountTable {
+
+	/**
+	 * Number of slots searched for a board before one is evicted
+	 */
+	static final int BUCKET = 4;
+
+	/**
+	 * Longs in each slot, the low and high long of the canonical board followed by its solutions and dead ends
+	 */
+	static final int SLOT = 4;
+
+	/**
+	 * Declare variables for the CountTable class
+	 * slots holds the slots of the table, a slot whose board is all zeros is empty
+	 */
+	long[] slots;
+	int mask;
+	long stored;
+	long evicted;
+
+	/**
+	 * Create a table using at most the given amount of memory
+	 * @param megabytes memory cap for the table, 0 disables the table so every board is counted again each time it is reached
+	 */
+	public CountTable(int megabytes) {
+		long count = Long.highestOneBit((long) megabytes * 1024 * 1024 / (8 * SLOT));
+		count = Math.min(count, 1 << 28);
+		if (count >= BUCKET) {
+			slots = new long[(int) count * SLOT];
+			mask = (int) count - 1;
+		}
+	}
+
+	/**
+	 * Find the slot of a board
+	 * @param low bits 0 to 63 of the canonical board
+	 * @param high bits 64 to 127 of the canonical board
+	 * @return index of the first long of the slot, -1 if the board is not in the table
+	 */
+	public int find(long low, long high) {
+		if (slots == null) return -1;
+		int bucket = (int) TranspositionTable.check(low, high) & mask & -BUCKET;
+		for (int i = bucket * SLOT; i < (bucket + BUCKET) * SLOT; i += SLOT) {
+			if (slots[i] == low && slots[i + 1] == high) return i;
+			if (slots[i] == 0 && slots[i + 1] == 0) return -1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param slot index returned by find
+	 * @return number of one peg solutions below the board of the slot
+	 */
+	public long solutions(int slot) {
+		return slots[slot + 2];
+	}
+
+	/**
+	 * @param slot index returned by find
+	 * @return number of dead ends below the board of the slot
+	 */
+	public long deadEnds(int slot) {
+		return slots[slot + 3];
+	}
+
+	/**
+	 * Store the counts of a board, evicting an older board if its bucket is full
+	 * @param low bits 0 to 63 of the canonical board
+	 * @param high bits 64 to 127 of the canonical board
+	 * @param solutions number of one peg solutions below the board
+	 * @param deadEnds number of dead ends below the board
+	 */
+	public void put(long low, long high, long solutions, long deadEnds) {
+		if (slots == null || (low == 0 && high == 0)) return;
+		int hash = (int) TranspositionTable.check(low, high);
+		int bucket = hash & mask & -BUCKET;
+		int slot = (bucket + (hash >>> 30)) * SLOT;
+		for (int i = bucket * SLOT; i < (bucket + BUCKET) * SLOT; i += SLOT) {
+			if (slots[i] == 0 && slots[i + 1] == 0) {
+				slot = i;
+				break;
+			}
+		}
+		if (slots[slot] == 0 && slots[slot + 1] == 0) stored++;
+		else evicted++;
+		slots[slot] = low;
+		slots[slot + 1] = high;
+		slots[slot + 2] = solutions;
+		slots[slot + 3] = deadEnds;
+	}
+}
@@ -0,0 +1,172 @@
+package pegboard;
+
+import java.io.PrintStream;
+
+/**
+ * The Counter class counts every one peg solution and every dead end of a pegboard instead of stopping at the first solution
+ * A solution is a sequence of moves that leaves one peg, a dead end is a sequence of moves that leaves more than one peg with no move left
+ * The game tree is walked depth first, and the counts below each board are kept in a CountTable, so a board reached again through
+ * another order of moves, or a rotation or mirror image of it, is counted once and its subtree is not walked again
+ * Counts are also kept for each depth: the number of different boards, how many of them are dead ends and how many can reach one peg
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Counter {
+
+	/**
+	 * Number of boards counted between copies of the counts into the metrics
+	 */
+	static final int CHECK_INTERVAL = 65536;
+
+	/**
+	 * Declare variables for the Counter class
+	 * solutions and deadEnds are the counts for the start, they stop at Long.MAX_VALUE and set saturated if a count grows larger
+	 * boards, deadEndBoards and solvableBoards count the different boards at each depth, a board evicted from the table is counted again
+	 */
+	State start;
+	CountTable table;
+	Metrics metrics;
+	Deadline deadline;
+	boolean finished;
+	boolean saturated;
+	long solutions;
+	long deadEnds;
+	long nodes;
+	long repeated;
+	long[] boards;
+	long[] deadEndBoards;
+	long[] solvableBoards;
+	int[][] moves;
+	int[] path;
+	long[] key = new long[2];
+	int untilCheck = CHECK_INTERVAL;
+	long lastSolutions;
+	long lastDeadEnds;
+
+	/**
+	 * Create a count of a pegboard
+	 * @param start state to count from
+	 * @param megabytes memory for the table of counted boards
+	 * @param metrics progress counters of the count
+	 */
+	public Counter(State start, int megabytes, Metrics metrics) {
+		this.start = start;
+		this.metrics = metrics;
+		table = new CountTable(megabytes);
+		int depths = Math.max(1, start.pegs);
+		boards = new long[depths];
+		deadEndBoards = new long[depths];
+		solvableBoards = new long[depths];
+		moves = new int[depths][];
+		path = new int[depths];
+	}
+
+	/**
+	 * Count every solution and dead end from the start, recording the path to the board with the fewest pegs
+	 * @param best the best path found so far
+	 * @param deadline expires when the maximum search time is reached or the count is cancelled
+	 * @return true if the count finished before the deadline expired
+	 */
+	public boolean count(Path best, Deadline deadline) {
+		this.deadline = deadline;
+		finished = walk(start.copy(), 0, best);
+		if (finished) {
+			solutions = lastSolutions;
+			deadEnds = lastDeadEnds;
+		}
+		best.nodes = nodes;
+		metrics.update(nodes, nodes, 0, best.pegs());
+		metrics.set(Metrics.REPEATED, repeated);
+		return finished;
+	}
+
+	/**
+	 * Count the solutions and dead ends below a board, leaving them in lastSolutions and lastDeadEnds
+	 * @param board board to count from, moves are played and taken back in place
+	 * @param depth number of moves played from the start
+	 * @param best the best path found so far
+	 * @return false if the deadline expired before the board was counted
+	 */
+	private boolean walk(State board, int depth, Path best) {
+		// A board counted before has the counts stored for its canonical board
+		start.layout.canonical(board.low, board.high, key);
+		long low = key[0];
+		long high = key[1];
+		int slot = table.find(low, high);
+		if (slot >= 0) {
+			repeated++;
+			lastSolutions = table.solutions(slot);
+			lastDeadEnds = table.deadEnds(slot);
+			return true;
+		}
+		if (deadline.expired()) return false;
+		if (--untilCheck == 0) {
+			untilCheck = CHECK_INTERVAL;
+			// Publish progress for the reporter, every board counted has had its moves listed
+			metrics.update(nodes, nodes, depth, best.pegs());
+			metrics.set(Metrics.REPEATED, repeated);
+		}
+		nodes++;
+		if (board.pegs < best.pegs()) best.set(path, depth);
+		if (moves[depth] == null) moves[depth] = new int[board.layout.maxMoves];
+		int count = board.moves(moves[depth]);
+		long s = 0;
+		long e = 0;
+		if (count == 0) {
+			if (board.pegs == 1) s = 1;
+			else e = 1;
+		}
+		for (int i = 0; i < count; i++) {
+			int move = moves[depth][i];
+			board.play(move);
+			path[depth] = move;
+			boolean counted = walk(board, depth + 1, best);
+			board.undo(move);
+			if (!counted) return false;
+			s = add(s, lastSolutions);
+			e = add(e, lastDeadEnds);
+		}
+		table.put(low, high, s, e);
+		boards[depth]++;
+		if (count == 0 && board.pegs > 1) deadEndBoards[depth]++;
+		if (s > 0) solvableBoards[depth]++;
+		lastSolutions = s;
+		lastDeadEnds = e;
+		return true;
+	}
+
+	/**
+	 * Add two counts, stopping at Long.MAX_VALUE
+	 * @param a first count
+	 * @param b second count
+	 * @return sum of the counts, or Long.MAX_VALUE if the sum is too large for a long
+	 */
+	long add(long a, long b) {
+		long sum = a + b;
+		if (sum < 0) {
+			saturated = true;
+			return Long.MAX_VALUE;
+		}
+		return sum;
+	}
+
+	/**
+	 * Print the counts and the histogram of boards by depth
+	 * @param output stream to print to
+	 */
+	public void print(PrintStream output) {
+		if (!finished) output.printf("Counting stopped before it finished, the depths below only include boards whose moves were all counted\n");
+		else {
+			String atLeast = saturated ? "at least " : "";
+			output.printf("One peg solutions: %s%d\n", atLeast, solutions);
+			output.printf("Dead ends: %s%d\n", atLeast, deadEnds);
+		}
+		if (table.slots == null) output.printf("No table of counted boards, the depths below count a board once for each order of moves reaching it\n");
+		else if (table.evicted > 0) output.printf("Boards evicted from the table and counted again: %d\n", table.evicted);
+		for (int d = 0; d < boards.length; d++) {
+			if (boards[d] == 0) continue;
+			output.printf("Depth %d: %d boards, %d dead ends, %d can reach one peg\n", d, boards[d], deadEndBoards[d], solvableBoards[d]);
+		}
+	}
+}
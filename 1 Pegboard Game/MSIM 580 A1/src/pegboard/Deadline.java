@@ -0,0 +1,90 @@
+package pegboard;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Deadline class tells a search when to stop
+ * A timer thread sets a volatile flag when the maximum search time is reached, so searches read a field on each node
+ * instead of asking the system for the time
+ * A search can also be stopped early from another thread by calling cancel, or by interrupting the program when the deadline
+ * is set to cancel on shutdown, in which case shutdown waits for the results of the search to be written
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Deadline {
+
+	/**
+	 * Longest time shutdown waits for the results of a cancelled search to be written, in milliseconds
+	 */
+	static final long SHUTDOWN_WAIT = 10000;
+
+	/**
+	 * Declare variables for the Deadline class
+	 * cancelled is set once and never cleared
+	 */
+	volatile boolean cancelled;
+	ScheduledExecutorService timer;
+	Thread shutdownHook;
+	CountDownLatch finished = new CountDownLatch(1);
+
+	/**
+	 * Create a deadline that expires after a maximum search time
+	 * @param maxTime milliseconds until the deadline expires
+	 */
+	public Deadline(long maxTime) {
+		// A daemon thread never keeps the program running after the search ends
+		timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "pegboard-deadline");
+			t.setDaemon(true);
+			return t;
+		});
+		timer.schedule(this::cancel, maxTime, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @return true if the search should stop
+	 */
+	public boolean expired() {
+		return cancelled;
+	}
+
+	/**
+	 * Stop the search, may be called from any thread
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Cancel the search when the program is interrupted, and hold shutdown until finish is called so the results can be written
+	 */
+	public void cancelOnShutdown() {
+		shutdownHook = new Thread(() -> {
+			cancel();
+			try {
+				finished.await(SHUTDOWN_WAIT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "pegboard-shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Release the timer and let a waiting shutdown continue, called once the results of the search are written
+	 */
+	public void finish() {
+		timer.shutdownNow();
+		finished.countDown();
+		if (shutdownHook == null) return;
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// Shutdown has already started and the hook is waiting for this call
+		}
+	}
+}
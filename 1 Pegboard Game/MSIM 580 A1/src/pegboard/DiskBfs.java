@@ -0,0 +1,588 @@
+package pegboard;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Scanner;
+
+/**
+ * The DiskBfs class performs a breadth-first search that keeps its layers of boards in files instead of on the heap
+ * Every board of a layer has the same number of pegs, so a layer is stored as a file of canonical bitboards, one or two longs each,
+ * followed by a byte giving the symmetry that turns the canonical board back into the board reached from the start
+ * The pruners were built for the start, so boards are expanded and pruned as they were reached and not as their canonical image
+ * The next layer is written in partitions chosen by the hash of each board, each partition is small enough to be sorted in memory,
+ * repeated boards are removed from the sorted partition, and the partitions are joined to form the next layer file
+ * Layer files are read back through memory mapped windows
+ * The best path is rebuilt at the end by taking back moves from a board of the deepest layer,
+ * using a binary search of the layer before to find a parent that was reached
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class DiskBfs {
+
+	/**
+	 * Largest part of a layer file mapped into memory at once
+	 */
+	static final long WINDOW = 1L << 30;
+
+	/**
+	 * Size of the write buffer of each partition file
+	 */
+	static final int BUFFER = 1 << 16;
+
+	/**
+	 * Most partition files written at once
+	 */
+	static final int MAX_PARTITIONS = 1024;
+
+	/**
+	 * Largest partition sorted at once when memory allows more, smaller partitions let the search stop soon after time expires
+	 */
+	static final long PARTITION_BYTES = 64L << 20;
+
+	/**
+	 * Longest time each search of the check may take, in seconds
+	 */
+	static final int CHECK_SECONDS = 60;
+
+	static final String USAGE = "Usage: java pegboard/DiskBfs board.txt ... [--topology orthogonal|diagonal|hex]";
+
+	/**
+	 * Declare variables for the DiskBfs class
+	 * words is the number of longs stored for each board, boards of up to 64 spaces are stored in one long
+	 * record is the number of bytes stored for each board, its longs and the byte of its symmetry
+	 * memory is the number of bytes a partition may use when it is sorted
+	 */
+	State start;
+	Layout layout;
+	int words;
+	int record;
+	long memory;
+	Pruning pruning;
+	Metrics metrics;
+	File directory;
+	ArrayList<Layer> layers = new ArrayList<Layer>();
+	long nodes;
+	long expanded;
+	long repeated;
+
+	/**
+	 * The Layer class describes a layer file, the boards of each partition are sorted and partitions follow each other in order
+	 */
+	static class Layer {
+		File file;
+		long[] partitionStart;
+
+		/**
+		 * @return number of boards in the layer
+		 */
+		long size() {
+			return partitionStart[partitionStart.length - 1];
+		}
+	}
+
+	/**
+	 * Check that the disk based search ends with the same number of pegs as the breadth-first search kept on the heap,
+	 * with pruning on and off, for each board given
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		int boards = args.length >= 2 && args[args.length - 2].equals("--topology") ? args.length - 2 : args.length;
+		if (boards == 0) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		boolean same = true;
+		for (int b = 0; b < boards; b++) {
+			State start;
+			try (Scanner input = new Scanner(new File(args[b]))) {
+				start = GameInputOutput.readBoard(input);
+				start.layout.setTopology(boards == args.length ? Topology.ORTHOGONAL : Topology.parse(args[args.length - 1]));
+			} catch (IOException | IllegalArgumentException e) {
+				System.err.println(e.getMessage());
+				System.err.println(USAGE);
+				System.exit(1);
+				return;
+			}
+			for (boolean prune : new boolean[] {true, false}) {
+				int bfs = check(start, prune, false);
+				int dbfs = check(start, prune, true);
+				String result = bfs < 0 || dbfs < 0 ? "not finished" : bfs == dbfs ? "same" : "DIFFERENT";
+				System.out.printf("%s pruning %s: bfs %d pegs, dbfs %d pegs, %s\n", args[b], prune ? "on" : "off", bfs, dbfs, result);
+				same &= bfs < 0 || dbfs < 0 || bfs == dbfs;
+			}
+		}
+		if (!same) System.exit(1);
+	}
+
+	/**
+	 * Search a board for the check
+	 * @param loaded starting state of the board with its topology selected, the search starts from a copy
+	 * @param prune true to use the pruners of Pruning.create
+	 * @param disk true for the disk based search, false for the breadth-first search kept on the heap
+	 * @return pegs left on the best board found, or -1 if the search did not finish in time
+	 */
+	static int check(State loaded, boolean prune, boolean disk) {
+		State start = loaded.copy();
+		LinkedList<State> current = new LinkedList<State>();
+		current.addFirst(start);
+		Path best = new Path(start);
+		Deadline deadline = new Deadline(CHECK_SECONDS * 1000L);
+		TranspositionTable table = new TranspositionTable(disk ? 0 : 256);
+		table.add(start);
+		Pruning pruning = Pruning.create(start, null, prune);
+		Metrics metrics = new Metrics(start, table, pruning);
+		try {
+			if (disk) GameInputOutput.dbfs(current, best, pruning, metrics, deadline);
+			else GameInputOutput.bfs(current, best, table, pruning, metrics, deadline);
+		} finally {
+			deadline.finish();
+		}
+		return deadline.expired() ? -1 : best.pegs();
+	}
+
+	/**
+	 * Create a disk based breadth-first search
+	 * @param start state to search from
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search
+	 * @param memory bytes a partition may use while it is sorted
+	 * @param directory folder the layer files are written in
+	 */
+	public DiskBfs(State start, Pruning pruning, Metrics metrics, long memory, File directory) {
+		this.start = start;
+		this.pruning = pruning;
+		this.metrics = metrics;
+		layout = start.layout;
+		words = layout.size > 64 ? 2 : 1;
+		record = words * 8 + 1;
+		this.memory = Math.max(memory, 1 << 20);
+		this.directory = directory;
+		nodes = start.nodes;
+	}
+
+	/**
+	 * Search layer by layer until a layer with one peg is reached, no boards remain or time expires
+	 * A layer that is not finished when time expires is discarded, the best path ends in the last finished layer
+	 * @param best the best path found so far, replaced by a path to a board of the deepest layer
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return the best path found
+	 */
+	public Path search(Path best, Deadline deadline) {
+		try {
+			// The first layer holds the canonical starting board
+			long[] key = new long[2];
+			int symmetry = layout.canonical(start.low, start.high, key);
+			Layer first = new Layer();
+			first.file = new File(directory, "layer0.bin");
+			try (DataOutputStream out = open(first.file)) {
+				write(out, key[0], key[1], symmetry);
+			}
+			first.partitionStart = new long[] {0, 1};
+			layers.add(first);
+			int pegs = start.pegs;
+			while (pegs > 1 && !deadline.expired()) {
+				Layer next = expand(layers.get(layers.size() - 1), layers.size(), deadline);
+				if (next == null) break;
+				if (next.size() == 0) {
+					next.file.delete();
+					break;
+				}
+				expanded += layers.get(layers.size() - 1).size();
+				layers.add(next);
+				pegs--;
+				// Publish progress for the reporter
+				metrics.update(expanded, nodes, next.size(), pegs);
+			}
+			rebuildPath(best);
+			best.nodes = nodes;
+			return best;
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		finally {
+			for (Layer l : layers) l.file.delete();
+			directory.delete();
+		}
+	}
+
+	/**
+	 * Generate the next layer from the boards of a layer
+	 * @param layer finished layer to expand
+	 * @param depth number of the new layer
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return the new layer, or null if time expired before it was finished
+	 * @throws IOException if a layer or partition file can not be read or written
+	 */
+	private Layer expand(Layer layer, int depth, Deadline deadline) throws IOException {
+		// Count the successors of the layer to choose how many partitions are needed to sort them in memory
+		State board = start.copy();
+		int[] moves = new int[layout.maxMoves];
+		long[] key = new long[2];
+		long successors = 0;
+		for (long pos = 0; pos < layer.size(); ) {
+			ByteBuffer boards = map(layer, pos);
+			while (boards.hasRemaining()) {
+				read(boards, board, key);
+				successors += board.moves(moves);
+				pos++;
+				if (deadline.expired()) return null;
+			}
+		}
+		int partitions = (int) Math.min(MAX_PARTITIONS, Math.max(1, successors * 24 / Math.min(memory, PARTITION_BYTES) + 1));
+		// Write the canonical successors of every board into the partition chosen by their hash
+		// The best board found so far is a board of the layer being expanded, successors that can not improve on it are pruned
+		File[] partitionFiles = new File[partitions];
+		DataOutputStream[] out = new DataOutputStream[partitions];
+		boolean finished = false;
+		try {
+			for (int p = 0; p < partitions; p++) {
+				partitionFiles[p] = new File(directory, "layer" + depth + "-" + p + ".bin");
+				out[p] = open(partitionFiles[p]);
+			}
+			for (long pos = 0; pos < layer.size(); ) {
+				ByteBuffer boards = map(layer, pos);
+				while (boards.hasRemaining()) {
+					read(boards, board, key);
+					int count = board.moves(moves);
+					int bestPegs = board.pegs;
+					for (int i = 0; i < count; i++) {
+						board.play(moves[i]);
+						boolean keep = !pruning.prune(board, bestPegs);
+						int symmetry = keep ? layout.canonical(board.low, board.high, key) : -1;
+						board.undo(moves[i]);
+						if (keep) write(out[partition(key[0], key[1], partitions)], key[0], key[1], symmetry);
+					}
+					pos++;
+					if (deadline.expired()) return null;
+					if ((pos & 0xFFF) == 0) {
+						metrics.set(Metrics.EXPANDED, expanded + pos);
+						metrics.set(Metrics.FRONTIER, layer.size() - pos);
+					}
+				}
+			}
+			finished = true;
+		}
+		finally {
+			for (DataOutputStream o : out) if (o != null) o.close();
+			if (!finished) for (File f : partitionFiles) if (f != null) f.delete();
+		}
+		// Sort each partition, drop repeated boards and append it to the new layer, a repeated board keeps the symmetry of its first copy
+		Layer next = new Layer();
+		next.file = new File(directory, "layer" + depth + ".bin");
+		next.partitionStart = new long[partitions + 1];
+		int sorted = 0;
+		try (DataOutputStream layerOut = open(next.file)) {
+			for (int p = 0; p < partitions && !deadline.expired(); p++, sorted++) {
+				long[] boards = readPartition(partitionFiles[p]);
+				partitionFiles[p].delete();
+				int n = boards.length / 3;
+				sort(boards, 0, n - 1);
+				long unique = 0;
+				for (int i = 0; i < n; i++) {
+					if (i > 0 && boards[3 * i] == boards[3 * i - 3] && boards[3 * i + 1] == boards[3 * i - 2]) continue;
+					writeRecord(layerOut, boards[3 * i], boards[3 * i + 1], (byte) boards[3 * i + 2]);
+					unique++;
+				}
+				next.partitionStart[p + 1] = next.partitionStart[p] + unique;
+				nodes += unique;
+				repeated += n - unique;
+				metrics.set(Metrics.NODES, nodes);
+				metrics.set(Metrics.REPEATED, repeated);
+			}
+		}
+		// Discard the layer if time expired before every partition was sorted
+		if (sorted < partitions) {
+			for (int p = sorted; p < partitions; p++) partitionFiles[p].delete();
+			next.file.delete();
+			return null;
+		}
+		return next;
+	}
+
+	/**
+	 * Rebuild the path to the first board of the deepest layer by taking back moves
+	 * The parent of a board is any board reached by taking back a move whose canonical board is in the layer before
+	 * The parents are found by their canonical boards, so the path found may start from a rotation or mirror image of the start,
+	 * in that case its moves are transformed by the symmetry that turns that board back into the start
+	 * @param best path to replace
+	 * @throws IOException if a layer file can not be read
+	 */
+	private void rebuildPath(Path best) throws IOException {
+		int depth = layers.size() - 1;
+		State board = start.copy();
+		long[] key = new long[2];
+		ByteBuffer first = map(layers.get(depth), 0);
+		read(first, board, key);
+		int[] path = new int[Math.max(1, depth)];
+		for (int d = depth - 1; d >= 0; d--) {
+			Layer parents = layers.get(d);
+			int found = -1;
+			for (int m = 0; m < layout.moveTable.length && found < 0; m++) {
+				int move = layout.moveTable[m];
+				if (board.peg(Layout.from(move)) || board.peg(Layout.over(move)) || !board.peg(Layout.to(move))) continue;
+				board.undo(move);
+				layout.canonical(board.low, board.high, key);
+				if (contains(parents, key[0], key[1])) found = move;
+				else board.play(move);
+			}
+			if (found < 0) throw new IllegalStateException("No parent found for a board of layer " + (d + 1));
+			path[d] = found;
+		}
+		// Transform the moves if the path starts from a symmetric copy of the start
+		int[] map = null;
+		for (int s = 0; s < layout.symmetryMaps.length && (board.low != start.low || board.high != start.high); s++) {
+			map = layout.symmetryMaps[s];
+			State image = transform(board, map);
+			if (image.low == start.low && image.high == start.high) break;
+			map = null;
+		}
+		if (map != null) {
+			for (int i = 0; i < depth; i++) {
+				path[i] = Layout.move(map[Layout.from(path[i])], map[Layout.over(path[i])], map[Layout.to(path[i])]);
+			}
+		}
+		best.set(path, depth);
+	}
+
+	/**
+	 * Apply a symmetry to a board
+	 * @param board board to transform
+	 * @param map transformed index of every space
+	 * @return transformed board
+	 */
+	private State transform(State board, int[] map) {
+		State image = start.copy();
+		image.low = 0;
+		image.high = 0;
+		for (int i = 0; i < layout.size; i++) if (board.peg(i)) image.set(map[i]);
+		return image;
+	}
+
+	/**
+	 * Determine if a layer holds a canonical board, using a binary search of the partition the board hashes to
+	 * @param layer layer to search
+	 * @param low bits 0 to 63 of the canonical board
+	 * @param high bits 64 to 127 of the canonical board
+	 * @return true if the board is in the layer
+	 * @throws IOException if the layer file can not be read
+	 */
+	private boolean contains(Layer layer, long low, long high) throws IOException {
+		int p = partition(low, high, layer.partitionStart.length - 1);
+		long lo = layer.partitionStart[p];
+		long hi = layer.partitionStart[p + 1] - 1;
+		try (FileChannel channel = FileChannel.open(layer.file.toPath(), StandardOpenOption.READ)) {
+			if (hi < lo) return false;
+			ByteBuffer boards = channel.map(MapMode.READ_ONLY, lo * record, (hi - lo + 1) * record);
+			int a = 0;
+			int b = (int) (hi - lo);
+			while (a <= b) {
+				int mid = (a + b) >>> 1;
+				long midLow = boards.getLong(mid * record);
+				long midHigh = words == 2 ? boards.getLong(mid * record + 8) : 0;
+				int c = compare(midLow, midHigh, low, high);
+				if (c == 0) return true;
+				if (c < 0) a = mid + 1;
+				else b = mid - 1;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Map the part of a layer file starting at a board into memory
+	 * @param layer layer to read
+	 * @param pos index of the first board to map
+	 * @return boards from pos to the end of the window
+	 * @throws IOException if the layer file can not be read
+	 */
+	private ByteBuffer map(Layer layer, long pos) throws IOException {
+		try (FileChannel channel = FileChannel.open(layer.file.toPath(), StandardOpenOption.READ)) {
+			long bytes = Math.min((layer.size() - pos) * record, WINDOW / record * record);
+			return channel.map(MapMode.READ_ONLY, pos * record, bytes);
+		}
+	}
+
+	/**
+	 * Read the next board of a mapped layer into a state as it was reached from the start,
+	 * the heuristic value of the state is not used and is left unchanged
+	 * @param boards mapped boards
+	 * @param board state to overwrite
+	 * @param key space for the canonical board
+	 */
+	private void read(ByteBuffer boards, State board, long[] key) {
+		key[0] = boards.getLong();
+		key[1] = words == 2 ? boards.getLong() : 0;
+		int symmetry = boards.get();
+		if (symmetry >= 0) layout.transform(key[0], key[1], symmetry, key);
+		board.low = key[0];
+		board.high = key[1];
+		board.pegs = (byte) (Long.bitCount(board.low) + Long.bitCount(board.high));
+	}
+
+	/**
+	 * Read a whole partition file into triples of longs, the low long of each board, the high long and the byte of its symmetry
+	 * @param file partition file
+	 * @return boards of the partition
+	 * @throws IOException if the partition file can not be read
+	 */
+	private long[] readPartition(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long n = channel.size() / record;
+			if (n * 3 > Integer.MAX_VALUE - 8) throw new IllegalStateException("Partition of " + n + " boards is too large to sort in memory");
+			long[] boards = new long[(int) n * 3];
+			int i = 0;
+			for (long pos = 0; pos < n; ) {
+				long count = Math.min(n - pos, WINDOW / record);
+				ByteBuffer window = channel.map(MapMode.READ_ONLY, pos * record, count * record);
+				while (window.hasRemaining()) {
+					boards[i] = window.getLong();
+					boards[i + 1] = words == 2 ? window.getLong() : 0;
+					boards[i + 2] = window.get();
+					i += 3;
+				}
+				pos += count;
+			}
+			return boards;
+		}
+	}
+
+	/**
+	 * Open a buffered output file
+	 * @param file file to create
+	 * @return output stream
+	 * @throws IOException if the file can not be created
+	 */
+	private static DataOutputStream open(File file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER));
+	}
+
+	/**
+	 * Write a canonical board with the symmetry that turns it back into the board reached
+	 * @param out output stream
+	 * @param low bits 0 to 63 of the canonical board
+	 * @param high bits 64 to 127 of the canonical board
+	 * @param symmetry index of the symmetry canonical applied to the board reached, -1 if the board was its own canonical board
+	 * @throws IOException if the board can not be written
+	 */
+	private void write(DataOutputStream out, long low, long high, int symmetry) throws IOException {
+		writeRecord(out, low, high, (byte) (symmetry < 0 ? -1 : layout.inverses[symmetry]));
+	}
+
+	/**
+	 * Write a board in its compact form
+	 * @param out output stream
+	 * @param low bits 0 to 63 of the board
+	 * @param high bits 64 to 127 of the board, only written for boards of more than 64 spaces
+	 * @param symmetry index of the symmetry that turns the board back into the board reached, -1 for none
+	 * @throws IOException if the board can not be written
+	 */
+	private void writeRecord(DataOutputStream out, long low, long high, byte symmetry) throws IOException {
+		out.writeLong(low);
+		if (words == 2) out.writeLong(high);
+		out.writeByte(symmetry);
+	}
+
+	/**
+	 * @param low bits 0 to 63 of a board
+	 * @param high bits 64 to 127 of a board
+	 * @param partitions number of partitions
+	 * @return partition of the board
+	 */
+	static int partition(long low, long high, int partitions) {
+		return (int) ((TranspositionTable.check(low, high) >>> 1) % partitions);
+	}
+
+	/**
+	 * Compare two boards by their high long and then their low long
+	 * @return negative, zero or positive as the first board is less than, equal to or greater than the second
+	 */
+	static int compare(long low1, long high1, long low2, long high2) {
+		if (high1 != high2) return Long.compare(high1, high2);
+		return Long.compare(low1, low2);
+	}
+
+	/**
+	 * Sort boards stored as triples of longs with a quicksort, triples are swapped together
+	 * @param a boards, the low long of board i at 3i, the high long at 3i + 1 and its symmetry at 3i + 2
+	 * @param lo index of the first board to sort
+	 * @param hi index of the last board to sort
+	 */
+	static void sort(long[] a, int lo, int hi) {
+		while (hi - lo > 16) {
+			// Median of three pivot
+			int mid = (lo + hi) >>> 1;
+			if (less(a, mid, lo)) swap(a, mid, lo);
+			if (less(a, hi, lo)) swap(a, hi, lo);
+			if (less(a, hi, mid)) swap(a, hi, mid);
+			long pivotLow = a[3 * mid];
+			long pivotHigh = a[3 * mid + 1];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (compare(a[3 * i], a[3 * i + 1], pivotLow, pivotHigh) < 0) i++;
+				while (compare(a[3 * j], a[3 * j + 1], pivotLow, pivotHigh) > 0) j--;
+				if (i <= j) swap(a, i++, j--);
+			}
+			// Sort the smaller side first so the stack stays shallow
+			if (j - lo < hi - i) {
+				sort(a, lo, j);
+				lo = i;
+			}
+			else {
+				sort(a, i, hi);
+				hi = j;
+			}
+		}
+		for (int i = lo + 1; i <= hi; i++) {
+			for (int j = i; j > lo && less(a, j, j - 1); j--) swap(a, j, j - 1);
+		}
+	}
+
+	/**
+	 * @return true if board i is less than board j
+	 */
+	private static boolean less(long[] a, int i, int j) {
+		return compare(a[3 * i], a[3 * i + 1], a[3 * j], a[3 * j + 1]) < 0;
+	}
+
+	/**
+	 * Swap boards i and j
+	 */
+	private static void swap(long[] a, int i, int j) {
+		long low = a[3 * i];
+		long high = a[3 * i + 1];
+		long symmetry = a[3 * i + 2];
+		a[3 * i] = a[3 * j];
+		a[3 * i + 1] = a[3 * j + 1];
+		a[3 * i + 2] = a[3 * j + 2];
+		a[3 * j] = low;
+		a[3 * j + 1] = high;
+		a[3 * j + 2] = symmetry;
+	}
+
+	/**
+	 * Create a folder for the layer files of a search in the system's temporary folder
+	 * @return new empty folder
+	 */
+	static File createDirectory() {
+		try {
+			return Files.createTempDirectory("pegboard").toFile();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
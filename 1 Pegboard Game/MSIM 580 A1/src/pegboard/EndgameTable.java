@@ -0,0 +1,309 @@
+package pegboard;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Scanner;
+
+/**
+ * The EndgameTable class records which boards with few pegs can still be solved, finishing with a single peg
+ * The table is built once for the shape and moves of a pegboard by playing moves backwards from every board with one peg,
+ * so each layer of boards with one more peg holds exactly the boards with a move into a solvable board of the layer before
+ * Boards of each layer are numbered by their combinatorial rank, the position of their set of pegs among all sets with the same
+ * number of pegs, so every board is one bit of a file that is mapped into memory and shared by every search thread
+ * Searches ask the table through the pruning stage, once the best board found has two pegs a board with few pegs that can not
+ * be solved is skipped without searching below it
+ * Usage: java pegboard/EndgameTable board.txt pegs file.egt [--topology orthogonal|diagonal|hex]
+ * Layout of the file, all numbers big endian:
+ * int MAGIC, byte VERSION, byte height, byte width, byte topology, long valid spaces low, long valid spaces high, byte pegs,
+ * padding up to HEADER bytes, then one bit for each board of each layer, lowest bit first
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class EndgameTable implements Pruner {
+
+	/**
+	 * First four bytes of an endgame table file, the letters PEGE
+	 */
+	static final int MAGIC = 0x50454745;
+
+	/**
+	 * Version of the file layout
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * Bytes before the first bit of the table
+	 */
+	static final int HEADER = 32;
+
+	static final String USAGE = "Usage: java pegboard/EndgameTable board.txt pegs file.egt [--topology orthogonal|diagonal|hex]";
+
+	/**
+	 * Declare variables for the EndgameTable class
+	 * index numbers the spaces that are part of the board from 0, spaces marked 8 are -1, and spaces gives the space of each number
+	 * binomial[i][j] is the number of ways to choose j of i spaces, layerStart is the first bit of the boards with each number of pegs
+	 * reverseStart and reverseTable list the moves landing on each space, in the same form as the table of moves of the Layout
+	 */
+	Layout layout;
+	int maxPegs;
+	int[] index;
+	int[] spaces;
+	long[][] binomial;
+	long[] layerStart;
+	int[] reverseStart;
+	int[] reverseTable;
+	MappedByteBuffer bits;
+
+	/**
+	 * Build an endgame table for a board or check a table built earlier
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		if (args.length != 3 && !(args.length == 5 && args[3].equals("--topology"))) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		Topology topology = Topology.ORTHOGONAL;
+		State start;
+		int pegs;
+		try (Scanner input = new Scanner(new File(args[0]))) {
+			if (args.length == 5) topology = Topology.parse(args[4]);
+			pegs = Integer.parseInt(args[1]);
+			start = GameInputOutput.readBoard(input);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+			return;
+		}
+		start.layout.setTopology(topology);
+		long startTime = System.currentTimeMillis();
+		try {
+			EndgameTable table = build(start.layout, pegs, new File(args[2]));
+			for (int k = 1; k <= table.maxPegs; k++) {
+				System.out.printf("%d pegs: %d of %d boards can be solved\n", k, table.count(k), table.binomial[table.spaces.length][k]);
+			}
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+		System.out.printf("Finished in %d ms\n", System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * Create the numbering of the boards of a layout
+	 * @param layout layout of the board, its topology must already be selected
+	 * @param maxPegs largest number of pegs in the table
+	 */
+	EndgameTable(Layout layout, int maxPegs) {
+		this.layout = layout;
+		this.maxPegs = maxPegs;
+		index = new int[layout.size];
+		int n = 0;
+		for (int i = 0; i < layout.size; i++) index[i] = layout.valid(i) ? n++ : -1;
+		if (maxPegs < 1 || maxPegs > n) throw new IllegalArgumentException("An endgame table holds 1 to " + n + " pegs on this board");
+		spaces = new int[n];
+		for (int i = 0; i < layout.size; i++) if (index[i] >= 0) spaces[index[i]] = i;
+		binomial = new long[n + 1][maxPegs + 1];
+		for (int i = 0; i <= n; i++) {
+			binomial[i][0] = 1;
+			for (int j = 1; j <= Math.min(i, maxPegs); j++) binomial[i][j] = binomial[i - 1][j - 1] + binomial[i - 1][j];
+		}
+		layerStart = new long[maxPegs + 2];
+		for (int k = 1; k <= maxPegs; k++) layerStart[k + 1] = layerStart[k] + binomial[n][k];
+		// List the moves of the layout again by the space they land on
+		reverseStart = new int[layout.size + 1];
+		for (int move : layout.moveTable) reverseStart[Layout.to(move) + 1]++;
+		for (int i = 0; i < layout.size; i++) reverseStart[i + 1] += reverseStart[i];
+		reverseTable = new int[layout.moveTable.length];
+		int[] next = reverseStart.clone();
+		for (int move : layout.moveTable) reverseTable[next[Layout.to(move)]++] = move;
+	}
+
+	/**
+	 * @return bytes of the file holding the table
+	 */
+	long fileSize() {
+		return HEADER + (layerStart[maxPegs + 1] + 7) / 8;
+	}
+
+	/**
+	 * Build the table for a layout and write it to a file
+	 * @param layout layout of the board, its topology must already be selected
+	 * @param maxPegs largest number of pegs in the table
+	 * @param file file to create
+	 * @return the table, mapped from the file
+	 * @throws IOException if the file can not be written
+	 * @throws IllegalArgumentException if the table would not fit in a mapped file
+	 */
+	public static EndgameTable build(Layout layout, int maxPegs, File file) throws IOException {
+		EndgameTable table = new EndgameTable(layout, maxPegs);
+		if (table.fileSize() > Integer.MAX_VALUE) throw new IllegalArgumentException("The table of " + maxPegs + " pegs is larger than 2 GB, use fewer pegs");
+		try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+			// Start from an empty file so every board begins unsolvable
+			out.setLength(0);
+			out.setLength(table.fileSize());
+			table.bits = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, table.fileSize());
+		}
+		ByteBuffer header = table.bits.duplicate();
+		header.putInt(MAGIC);
+		header.put(VERSION);
+		header.put(layout.height);
+		header.put(layout.width);
+		header.put((byte) layout.topology.ordinal());
+		header.putLong(layout.validLow);
+		header.putLong(layout.validHigh);
+		header.put((byte) maxPegs);
+		// Every board with one peg is solved
+		for (int c = 0; c < table.spaces.length; c++) table.set(table.layerStart[1] + c);
+		long[] board = new long[2];
+		for (int k = 1; k < maxPegs; k++) {
+			// Play every move backwards from each solvable board of the layer, a peg jumps back over an empty space
+			long first = table.layerStart[k];
+			for (long r = 0; r < table.binomial[table.spaces.length][k]; r++) {
+				if (!table.get(first + r)) continue;
+				table.unrank(r, k, board);
+				for (long pegs = board[0]; pegs != 0; pegs &= pegs - 1) table.unplay(board[0], board[1], Long.numberOfTrailingZeros(pegs), k);
+				for (long pegs = board[1]; pegs != 0; pegs &= pegs - 1) table.unplay(board[0], board[1], 64 + Long.numberOfTrailingZeros(pegs), k);
+			}
+		}
+		table.bits.force();
+		return table;
+	}
+
+	/**
+	 * Play every move landing on a peg backwards, marking each board found as solvable
+	 * @param low pegs in spaces 0 to 63 of a solvable board
+	 * @param high pegs in spaces 64 to 127 of a solvable board
+	 * @param to space of the peg
+	 * @param pegs number of pegs on the board
+	 */
+	void unplay(long low, long high, int to, int pegs) {
+		for (int j = reverseStart[to], end = reverseStart[to + 1]; j < end; j++) {
+			int move = reverseTable[j];
+			int from = Layout.from(move);
+			int over = Layout.over(move);
+			if (State.bit(low, high, from) || State.bit(low, high, over)) continue;
+			// Shifts only use the lowest six bits of a space, so one shift works for both longs
+			long flipLow = (from < 64 ? 1L << from : 0) | (over < 64 ? 1L << over : 0) | (to < 64 ? 1L << to : 0);
+			long flipHigh = (from >= 64 ? 1L << from : 0) | (over >= 64 ? 1L << over : 0) | (to >= 64 ? 1L << to : 0);
+			set(rank(low ^ flipLow, high ^ flipHigh, pegs + 1));
+		}
+	}
+
+	/**
+	 * Map a table built earlier
+	 * @param file file holding the table
+	 * @param layout layout of the board to search, the table must have been built for the same spaces and moves
+	 * @return the table
+	 * @throws IOException if the file can not be read, is damaged or was built for a different board
+	 */
+	public static EndgameTable open(File file, Layout layout) throws IOException {
+		MappedByteBuffer bits;
+		try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+			if (in.length() < HEADER) throw new IOException(file + " is not an endgame table");
+			bits = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+		}
+		if (bits.getInt(0) != MAGIC) throw new IOException(file + " is not an endgame table");
+		if (bits.get(4) != VERSION) throw new IOException(file + " has unknown version " + bits.get(4));
+		if (bits.get(5) != layout.height || bits.get(6) != layout.width || bits.get(7) != layout.topology.ordinal()
+				|| bits.getLong(8) != layout.validLow || bits.getLong(16) != layout.validHigh) {
+			throw new IOException(file + " was built for a different board or different moves");
+		}
+		EndgameTable table;
+		try {
+			table = new EndgameTable(layout, bits.get(24));
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + " has " + bits.get(24) + " pegs in its header, " + e.getMessage());
+		}
+		if (bits.capacity() != table.fileSize()) throw new IOException(file + " is " + bits.capacity() + " bytes but should be " + table.fileSize());
+		table.bits = bits;
+		return table;
+	}
+
+	/**
+	 * Combinatorial rank of a board, the boards with the same number of pegs are numbered in colexicographic order
+	 * @param low pegs in spaces 0 to 63
+	 * @param high pegs in spaces 64 to 127
+	 * @param pegs number of pegs on the board
+	 * @return bit of the board in the table
+	 */
+	long rank(long low, long high, int pegs) {
+		long r = layerStart[pegs];
+		int j = 1;
+		for (; low != 0; low &= low - 1) r += binomial[index[Long.numberOfTrailingZeros(low)]][j++];
+		for (; high != 0; high &= high - 1) r += binomial[index[64 + Long.numberOfTrailingZeros(high)]][j++];
+		return r;
+	}
+
+	/**
+	 * Find the board with a rank, the reverse of rank
+	 * @param r rank of the board among the boards with the same number of pegs
+	 * @param pegs number of pegs on the board
+	 * @param board receives the low and high long of the board
+	 */
+	void unrank(long r, int pegs, long[] board) {
+		board[0] = 0;
+		board[1] = 0;
+		int c = spaces.length;
+		for (int j = pegs; j > 0; j--) {
+			// The peg of order j is on the largest numbered space c with binomial[c][j] not above the rank left
+			do c--; while (binomial[c][j] > r);
+			r -= binomial[c][j];
+			int s = spaces[c];
+			if (s < 64) board[0] |= 1L << s;
+			else board[1] |= 1L << s;
+		}
+	}
+
+	/**
+	 * @param bit bit of a board
+	 * @return true if the board can be solved
+	 */
+	boolean get(long bit) {
+		return (bits.get(HEADER + (int) (bit >>> 3)) >>> (bit & 7) & 1) != 0;
+	}
+
+	/**
+	 * Mark a board as solvable
+	 * @param bit bit of a board
+	 */
+	void set(long bit) {
+		int i = HEADER + (int) (bit >>> 3);
+		bits.put(i, (byte) (bits.get(i) | 1 << (bit & 7)));
+	}
+
+	/**
+	 * @param pegs number of pegs
+	 * @return number of solvable boards with that many pegs
+	 */
+	long count(int pegs) {
+		long count = 0;
+		for (long b = layerStart[pegs]; b < layerStart[pegs + 1]; b++) if (get(b)) count++;
+		return count;
+	}
+
+	/**
+	 * Determine if a board in the table can be solved
+	 * @param s state to test, it must have no more pegs than the table
+	 * @return true if a single peg can remain
+	 */
+	public boolean solvable(State s) {
+		return get(rank(s.low, s.high, s.pegs));
+	}
+
+	@Override
+	public String name() {
+		return "endgame table";
+	}
+
+	@Override
+	public boolean prune(State s, int bestPegs) {
+		return bestPegs <= 2 && s.pegs <= maxPegs && !solvable(s);
+	}
+}
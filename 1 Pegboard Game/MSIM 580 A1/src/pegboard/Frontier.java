@@ -0,0 +1,96 @@
+package pegboard;
+
+import java.util.Arrays;
+
+/**
+ * The Frontier class is a priority queue of states waiting to be expanded by a search
+ * States are kept in a binary heap ordered by a primitive key so adding and removing a state takes logarithmic time
+ * States with equal cost are removed in the reverse of the order they were added
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Frontier {
+
+	/**
+	 * Declare variables for the Frontier class
+	 * keys holds the cost of each state in the upper bits and a tie breaking sequence number in the lower 40 bits
+	 */
+	static final long SEQUENCE_MASK = (1L << 40) - 1;
+	long[] keys = new long[1024];
+	State[] states = new State[1024];
+	int size;
+	long added;
+
+	/**
+	 * @return true if no states remain
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return number of states waiting to be expanded
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Add a state to the frontier
+	 * @param s state to add
+	 * @param cost cost of the state, states with lower cost are removed first
+	 */
+	public void add(State s, int cost) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			states = Arrays.copyOf(states, size * 2);
+		}
+		long key = (long) cost << 40 | (SEQUENCE_MASK - (added++ & SEQUENCE_MASK));
+		// Move the new state up until its parent has a lower key
+		int i = size++;
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (keys[parent] <= key) break;
+			keys[i] = keys[parent];
+			states[i] = states[parent];
+			i = parent;
+		}
+		keys[i] = key;
+		states[i] = s;
+	}
+
+	/**
+	 * @return state with the lowest cost without removing it
+	 */
+	public State peek() {
+		return states[0];
+	}
+
+	/**
+	 * Remove the state with the lowest cost
+	 * @return state with the lowest cost
+	 */
+	public State poll() {
+		State first = states[0];
+		long key = keys[--size];
+		State last = states[size];
+		states[size] = null;
+		// Move the last state down from the top until its children have higher keys
+		int i = 0;
+		int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && keys[child + 1] < keys[child]) child++;
+			if (key <= keys[child]) break;
+			keys[i] = keys[child];
+			states[i] = states[child];
+			i = child;
+		}
+		if (size > 0) {
+			keys[i] = key;
+			states[i] = last;
+		}
+		return first;
+	}
+}
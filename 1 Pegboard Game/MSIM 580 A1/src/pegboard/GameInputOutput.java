@@ -1,24 +1,50 @@
 package pegboard;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.Scanner;
 import java.lang.Math;
 
 /**
  * This program solves a pegboard game using four different search techniques
- * The user is prompted to select a pegboard, a search method, and a maximum search time
+ * The user is prompted to select a pegboard, the moves allowed, a search method, and a maximum search time
+ * When arguments are given the program runs without prompts, solving a batch of pegboards as described in the Batch class
  * The program searches for solutions to the pegboard until either a solution is reached or time expires
  * In the event that a pegboard is unsolvable or time expires, the program generates a solution containing the best results found
+ * Counting instead walks the whole game tree, counting every solution and dead end as described in the Counter class
  * 
  * @author Ben Bissantz
  *
  */
 public class GameInputOutput {
 
+	/**
+	 * Names of the search methods used by batch runs, in the order of the search method prompt
+	 */
+	static final String[] METHODS = {"dfs", "bfs", "gbfs", "astar", "pdfs", "dbfs", "count", "wastar", "beam", "idastar"};
+
+	/**
+	 * Default weight of the heuristic value for weighted A* search and default number of states kept in each layer of a beam search
+	 */
+	static final double WEIGHT = 2;
+	static final int WIDTH = 1024;
+
 	public static void main(String[] args) {
 
+		/**
+		 * Run a batch of searches without prompts when arguments are given
+		 */
+		if (args.length > 0) {
+			Batch.run(args);
+			return;
+		}
+
 		/**
 		 * Declare objects needed for file input and output
 		 */
@@ -32,6 +58,11 @@ public class GameInputOutput {
 		PrintStream output = null;
 		int maxMinutes = 5;
 		int searchMethod = 1;
+		int tableMegabytes = 256;
+		int threads = 1;
+		double weight = WEIGHT;
+		int width = WIDTH;
+		Topology topology = Topology.ORTHOGONAL;
 
 		/**
 		 * Prompt user for a puzzle file
@@ -91,18 +122,71 @@ public class GameInputOutput {
 			}
 		}
 
+		/**
+		 * Prompt user for the moves allowed on the pegboard
+		 */
+		System.out.println("Please enter a number between 1 and 3 to select the moves allowed.");
+		System.out.println("1 - Orthogonal  2 - Orthogonal and Diagonal");
+		System.out.println("3 - Triangular, rows start in the first column as in Bonus6");
+		int topologyChoice = userInput.nextInt();
+		if (topologyChoice > 3 || topologyChoice < 1) {
+			topologyChoice = 1;
+			System.out.println("Invalid selection, Orthogonal moves have been chosen by default");
+		}
+		topology = Topology.values()[topologyChoice - 1];
+
 		/**
 		 * Prompt user for search method
 		 */
-		System.out.println("Please enter a number between 1 and 4 to select a serch method.");
+		System.out.println("Please enter a number between 1 and 10 to select a serch method.");
 		System.out.println("1 - Depth-First Search  2 - Breadth-First Search");
 		System.out.println("3 - Greedy-Best First Search  4 - A* Search");
+		System.out.println("5 - Parallel Depth-First Search  6 - Breadth-First Search on Disk");
+		System.out.println("7 - Count Every Solution and Dead End  8 - Weighted A* Search");
+		System.out.println("9 - Beam Search  10 - Iterative Deepening A* Search");
 		searchMethod = userInput.nextInt();
-		if (searchMethod > 4 || searchMethod < 1) {
+		if (searchMethod > 10 || searchMethod < 1) {
 			searchMethod = 1;
 			System.out.println("Invalid selection, Depth-First Search has been chosen by default");
 		}
 		
+		/**
+		 * Prompt user for the number of threads of a parallel search
+		 */
+		if (searchMethod == 5) {
+			int cores = Runtime.getRuntime().availableProcessors();
+			System.out.println("Please enter the number of threads to search with, " + cores + " cores are available.");
+			threads = userInput.nextInt();
+			if (threads < 1) {
+				threads = cores;
+				System.out.println("Invalid entry, " + cores + " threads will be used.");
+			}
+		}
+		
+		/**
+		 * Prompt user for the weight of the heuristic value of a weighted A* search
+		 */
+		if (searchMethod == 8) {
+			System.out.println("Please enter the weight of the heuristic value, 1 searches as A* and larger weights search faster with more pegs remaining.");
+			weight = userInput.nextDouble();
+			if (weight < 1) {
+				weight = WEIGHT;
+				System.out.println("Invalid entry, weight set to " + WEIGHT + ".");
+			}
+		}
+		
+		/**
+		 * Prompt user for the number of states kept in each layer of a beam search
+		 */
+		if (searchMethod == 9) {
+			System.out.println("Please enter the width of the beam, the number of states kept at each depth of the search.");
+			width = userInput.nextInt();
+			if (width < 1) {
+				width = WIDTH;
+				System.out.println("Invalid entry, width set to " + WIDTH + ".");
+			}
+		}
+		
 		/**
 		 * Prompt user for an output file.
 		 */
@@ -131,6 +215,27 @@ public class GameInputOutput {
 			maxMinutes = 10080;
 			System.out.println("Invalid entry, time set to 1 week.");
 		}
+		
+		/**
+		 * Prompt user for the memory used to detect repeated boards
+		 */
+		System.out.println("Please enter the memory in megabytes to use for detecting repeated boards, 0 to search every board.");
+		tableMegabytes = userInput.nextInt();
+		int maxMegabytes = (int) (Runtime.getRuntime().maxMemory() / 2 / 1024 / 1024);
+		if (tableMegabytes < 0) {
+			tableMegabytes = 0;
+			System.out.println("Invalid entry, every board will be searched.");
+		}
+		if (tableMegabytes > maxMegabytes) {
+			tableMegabytes = maxMegabytes;
+			System.out.println("Invalid entry, memory set to half of the Java heap, " + maxMegabytes + " megabytes.");
+		}
+		/**
+		 * Prompt user for pruning of boards that can not improve on the best board found
+		 */
+		System.out.println("Please enter 1 to skip boards that can not lead to fewer pegs than the best board found, 0 to search every board."
+				+ " An endgame table named after the input file with .egt added is used either way.");
+		boolean prune = userInput.nextInt() == 1;
 		userInput.close();
 		
 		/**
@@ -139,53 +244,41 @@ public class GameInputOutput {
 		// Variables for initial pegboard
 		long startTime = System.currentTimeMillis();
 		long maxTime = maxMinutes * 60 * 1000;
-		State start = new State();
-		byte width = 0;
-		byte height = 0;
-		String inputPegs = "";
-		// Read input from file
-		while (input.hasNextLine()) {
-			height++;
-			inputPegs = inputPegs + input.nextLine();
-		}
-		// Populate initial pegboard state
-		width = (byte) (inputPegs.length() / height);
-		start.width = width;
-		start.height = height;
-		start.nodes = 1;
-		start.board = new byte[inputPegs.length()];
-		for (byte i = 0; i < inputPegs.length(); i++) {
-			byte p = 1;
-			if (inputPegs.charAt(i) == '1') {
-				p = 1;
-				start.pegs++;
-			}
-			if (inputPegs.charAt(i) == '0') p = 0;
-			if (inputPegs.charAt(i) == '8') p = 8;
-			start.board[i] = p;
+		State start;
+		try {
+			start = readBoard(input);
+		} catch (IllegalArgumentException e) {
+			System.out.println("Invalid pegboard, " + e.getMessage() + ".");
+			return;
 		}
+		start.layout.setTopology(topology);
 		
 		/**
-		 *  Create current list of moves and best list of moves
+		 *  Create current list of states, the best path of moves and the table of boards already reached
 		 */
 		LinkedList<State> current = new LinkedList<State>();
-		LinkedList<State> best = new LinkedList<State>();
 		current.addFirst(start);
-		best.addFirst(start);
+		Path best = new Path(start);
+		TranspositionTable table = new TranspositionTable(searchMethod == 7 ? 0 : tableMegabytes);
+		table.add(start);
+		Pruning pruning = Pruning.create(start, endgame(new File(inputName + ".egt"), start), prune);
 		
 		/**
-		 *  Perform search selected during user input
+		 *  Perform search selected during user input, counting uses the memory of the table for the counts of each board
+		 *  Progress is printed by a reporter thread so the search itself does no output
 		 */
-		switch (searchMethod) {
-			case 1:  dfs(current, best, startTime, maxTime);
-	        break;
-			case 2:  bfs(current, best, startTime, maxTime);
-	        break;
-			case 3:  gbfs(current, best, startTime, maxTime);
-	        break;
-			case 4:  astar(current, best, startTime, maxTime);
-	        break;
+		Metrics metrics = new Metrics(start, table, pruning);
+		Reporter reporter = Reporter.start(metrics, System.out, false, Reporter.INTERVAL);
+		// Interrupting the program stops the search early and still writes the best board found
+		Deadline deadline = new Deadline(startTime + maxTime - System.currentTimeMillis());
+		deadline.cancelOnShutdown();
+		Counter counter = null;
+		if (searchMethod == 7) {
+			counter = new Counter(start, tableMegabytes, metrics);
+			counter.count(best, deadline);
 		}
+		else search(searchMethod, current, best, table, pruning, metrics, threads, weight, width, deadline);
+		reporter.stop();
 		
 		/**
 		 * Calculate execution time for output statistics
@@ -195,206 +288,527 @@ public class GameInputOutput {
 		long minutes = totalSeconds / 60 % 60;
 		long seconds = totalSeconds % 60;
 		long milliseconds = (System.currentTimeMillis() - startTime) % 1000;
+		long nodesPerSecond = best.nodes * 1000 / Math.max(1, System.currentTimeMillis() - startTime);
 		
 		/**
 		 * Print the best solution to the puzzle found to the output file
 		 */
-		output.printf("%d Pegs Remain\n", best.getLast().pegs);
-		output.printf("Total nodes explored: %d\n", best.getLast().nodes);
+		output.printf("%d Pegs Remain\n", best.pegs());
+		output.printf("Total nodes explored: %d\n", best.nodes);
+		output.printf("Repeated boards skipped: %d\n", metrics.repeated());
+		for (int p = 0; p < pruning.pruners.length; p++) output.printf("Boards pruned by %s: %d\n", pruning.pruners[p].name(), pruning.pruned[p].sum());
 		output.printf("Total time: %d:%d:%d:%d\n", hours, minutes, seconds, milliseconds);
-		for (int b = 0; b < best.size(); b++) {
-			output.printf("Board %d: %d Pegs\n", b, best.get(b).pegs);
+		output.printf("Search threads: %d\n", threads);
+		output.printf("Nodes per second: %d\n", nodesPerSecond);
+		if (counter != null) counter.print(output);
+		printBoards(output, best);
+		
+		/**
+		 * Write the best path to a solution file next to the output file so it can be checked by the Verifier
+		 */
+		try {
+			SolutionFile.write(best, new File(outputName + ".sol"));
+		} catch (IOException e) {
+			System.out.println("Unable to write solution file " + outputName + ".sol");
+		}
+		deadline.finish();
+	}
+
+	/**
+	 * Print every board along a path, one line for each row of the board using the input file alphabet
+	 * @param output stream to print to
+	 * @param best path to print
+	 */
+	public static void printBoards(PrintStream output, Path best) {
+		State board = best.board(0);
+		byte width = board.width;
+		byte height = board.height;
+		for (int b = 0; b <= best.length(); b++) {
+			// Replay the moves of the best path to rebuild each board
+			if (b > 0) board.play(best.move(b - 1));
+			output.printf("Board %d: %d Pegs\n", b, board.pegs);
 			for (byte j = 0; j < height; j++) {
 				for (byte i = 0; i < width; i++) {
-					output.printf("%d", best.get(b).board[i + j * width]);
+					output.printf("%d", board.get(i + j * width));
 				}
 				output.printf("\n");
 			}
 		}
 	}
 
+	/**
+	 * Open the endgame table of a board if one has been built
+	 * @param file endgame table file built by EndgameTable
+	 * @param start state the search begins with, its topology must already be selected
+	 * @return the endgame table, or null if the file does not exist or was built for a different board
+	 */
+	static EndgameTable endgame(File file, State start) {
+		if (!file.exists()) return null;
+		try {
+			return EndgameTable.open(file, start.layout);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Endgame table not used, " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Read a pegboard from an input file with one line for each row of the board
+	 * The rows are checked and packed into a State by BoardLoader.read, a blank line ends the board
+	 * @param input scanner reading the input file
+	 * @return initial pegboard state
+	 * @throws IllegalArgumentException if the input holds no board, a space is not 0, 1 or 8, the rows differ in length
+	 * or the pegboard has more spaces than the Layout allows
+	 */
+	public static State readBoard(Scanner input) {
+		StringBuilder rows = new StringBuilder();
+		while (input.hasNextLine()) rows.append(input.nextLine()).append('\n');
+		State start = BoardLoader.read(ByteBuffer.wrap(rows.toString().getBytes(StandardCharsets.ISO_8859_1)));
+		if (start == null) throw new IllegalArgumentException("the file holds no board");
+		return start;
+	}
+
+	/**
+	 * Perform the search selected by number, the numbers are those of the search method prompt
+	 * Counting, number 7, is not a search and is run through the Counter class
+	 * @param searchMethod number of the search method
+	 * @param current the linked list of States being currently explored
+	 * @param best the best path found so far
+	 * @param table boards already reached, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param threads number of threads for a parallel search
+	 * @param weight weight of the heuristic value for a weighted A* search
+	 * @param width number of states kept in each layer of a beam search
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
+	 */
+	public static Path search(int searchMethod, LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, int threads,
+			double weight, int width, Deadline deadline) {
+		switch (searchMethod) {
+			case 1:  return dfs(current, best, table, pruning, metrics, deadline);
+			case 2:  return bfs(current, best, table, pruning, metrics, deadline);
+			case 3:  return gbfs(current, best, table, pruning, metrics, deadline);
+			case 4:  return astar(current, best, table, pruning, metrics, deadline);
+			case 5:  return pdfs(current, best, table, pruning, metrics, threads, deadline);
+			case 6:  return dbfs(current, best, pruning, metrics, deadline);
+			case 8:  return wastar(current, best, table, pruning, metrics, weight, deadline);
+			case 9:  return beam(current, best, table, pruning, metrics, width, deadline);
+			case 10: return idastar(current, best, table, pruning, metrics, deadline);
+			default: throw new IllegalArgumentException("Unknown search method " + searchMethod);
+		}
+	}
+
 	/**
 	 * Perform a depth-first search of the list of current states
+	 * The search is iterative, moves are played and taken back in place on a single board using a preallocated move stack
 	 * @param current the linked list of States being currently explored
-	 * @param best the linked list of the best path of states found so far
-	 * @param startTime system time the search began
-	 * @param maxTime system time to end the search based on user input
-	 * @return updated linked list of the best path of states found so far
+	 * @param best the best path found so far
+	 * @param table boards already reached, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
 	 */
-	public static LinkedList<State> dfs(LinkedList<State> current, LinkedList<State> best, long startTime, long maxTime) {
-		// If a state with one peg or the maximum time is reached return the best state found
-		if(goal(best.getLast()) || System.currentTimeMillis() > startTime + maxTime) return best;
-		// Try each successor state for a given state
-		for (int i = 0; i < successor(current.getLast()).size(); i++) {
-			current.getLast().nodes ++;
-			// Update the current state
-			current.add(successor(current.getLast()).get(i));
-			// If better than the best state update the best state
-			if(current.getLast().pegs < best.getLast().pegs) {
-				for (int j = 1; j < best.size(); j++) {
-					best.remove(1);
-					best.addLast(current.get(j));
-				}
-				best.add(current.getLast());
+	public static Path dfs(LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, Deadline deadline) {
+		State start = current.getLast();
+		State board = start.copy();
+		// One row of moves for each move of the path, a path can be at most one move shorter than the number of pegs
+		int[][] moves = new int[board.pegs + 1][board.layout.maxMoves];
+		int[] count = new int[board.pegs + 1];
+		int[] next = new int[board.pegs + 1];
+		int[] path = new int[board.pegs + 1];
+		int depth = 0;
+		long nodes = start.nodes;
+		long expanded = 1;
+		count[0] = board.moves(moves[0]);
+		while (depth >= 0) {
+			// If a state with one peg or the maximum time is reached return the best state found
+			if(best.pegs() == 1 || deadline.expired()) break;
+			// When all successor states have been searched for a given state take back the last move and continue searching
+			if (next[depth] == count[depth]) {
+				depth--;
+				if (depth < 0) break;
+				board.undo(path[depth]);
+				// Publish progress for the reporter
+				metrics.update(expanded, nodes, depth, best.pegs());
+				continue;
 			}
-			best.getLast().nodes = current.getLast().nodes;
+			// Try the next successor state, skipping pruned boards and boards already searched through another sequence of moves
+			int move = moves[depth][next[depth]++];
+			board.play(move);
+			if (!table.add(board) || pruning.prune(board, best.pegs())) {
+				board.undo(move);
+				continue;
+			}
+			nodes ++;
+			path[depth++] = move;
+			// If better than the best state update the best state
+			if(board.pegs < best.pegs()) best.set(path, depth);
 			// Continue searching along current path
-			if(!goal(best.getLast())) best = dfs(current, best, startTime, maxTime);
+			count[depth] = board.moves(moves[depth]);
+			next[depth] = 0;
+			expanded ++;
 		}
-		// When the for loop exits, all successor states have been searched for a given state
-		// Remove the last node and continue searching
-		if(!goal(current.getLast())) {
-			long lastNodes = current.getLast().nodes; 
-			current.removeLast();
-			if(!current.isEmpty()) current.getLast().nodes = lastNodes;
-		}
-		// Continuous output to display progress
-		if(!current.isEmpty()) System.out.println("Best: " + best.getLast().pegs + " pegs, Current: " + current.getLast().pegs + " pegs, " + best.getLast().nodes + " nodes explored.");
+		metrics.update(expanded, nodes, 0, best.pegs());
+		best.nodes = nodes;
+		return best;
+	}
+	
+	/**
+	 * Perform a depth-first search of the list of current states on several threads
+	 * Threads steal unexplored parts of the move tree from each other and share the table of repeated boards
+	 * All threads stop when any thread finds a state with one peg or the maximum time is reached
+	 * @param current the linked list of States being currently explored
+	 * @param best the best path found so far
+	 * @param table boards already reached, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param threads number of threads to search with
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
+	 */
+	public static Path pdfs(LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, int threads, Deadline deadline) {
+		ParallelSearch search = new ParallelSearch(table, pruning, metrics, deadline);
+		search.search(current.getLast(), threads);
+		search.setBest(best);
 		return best;
 	}
 	
 	/**
 	 * Perform a breadth-first search of the list of current states
+	 * The search is iterative, each layer of states is generated from the previous layer in an array backed list
 	 * @param current the linked list of States being currently explored
-	 * @param best the linked list of the best path of states found so far
-	 * @param startTime system time the search began
-	 * @param maxTime system time to end the search based on user input
-	 * @return updated linked list of the best path of states found so far
+	 * @param best the best path found so far
+	 * @param table boards already reached, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
 	 */
-	public static LinkedList<State> bfs(LinkedList<State> current, LinkedList<State> best, long startTime, long maxTime) {
+	public static Path bfs(LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, Deadline deadline) {
+		// Layers hold states in the order they were generated and are expanded from the last state to the first
+		ArrayList<State> layer = new ArrayList<State>(current);
+		Collections.reverse(layer);
+		long nodes = best.nodes;
+		long expanded = 0;
 		// If a state with one peg or the maximum time is reached return the best state found
-		if(goal(best.getLast()) || System.currentTimeMillis() > startTime + maxTime) return best;
-		// Update the current set of states
-		LinkedList<State> newCurrent = new LinkedList<State>();
-		for (int x = 0; x < current.size(); x++) {
-			for (int y = 0; y < successor(current.get(x)).size(); y++) {
-				newCurrent.addFirst(successor(current.get(x)).get(y));
-				best.getFirst().nodes ++;
-			}
-			// Continuous output to display progress
-			if(!current.isEmpty()) System.out.println("Best: " + best.getLast().pegs + " pegs, " + best.getFirst().nodes + " nodes explored.");
-			if(System.currentTimeMillis() > startTime + maxTime) x = current.size();
-		}
-		current = newCurrent;
-		// Update the best path found
-		if(!current.isEmpty()) {
-			current.getFirst().nodes = best.getFirst().nodes;
-			best.addFirst(current.getFirst());
-			for (int j = 1; j < best.size(); j++) {
-				best.removeLast();
-				best.addFirst(best.getFirst().parent);
+		while (best.pegs() != 1 && !deadline.expired()) {
+			// Update the current set of states
+			ArrayList<State> nextLayer = new ArrayList<State>();
+			for (int x = layer.size() - 1; x >= 0; x--) {
+				for (State child : new Successors(layer.get(x))) {
+					if (!table.add(child) || pruning.prune(child, best.pegs())) continue;
+					nextLayer.add(child);
+					nodes ++;
+				}
+				// Publish progress for the reporter
+				metrics.update(++expanded, nodes, x + nextLayer.size(), best.pegs());
+				if(deadline.expired()) break;
 			}
-			best.getFirst().nodes = best.getLast().nodes;
-			return bfs(current, best, startTime, maxTime);
+			layer = nextLayer;
+			// If no current nodes return the best path found
+			if (layer.isEmpty()) break;
+			// Update the best path found, every state of a layer has the same number of pegs
+			best.set(layer.get(layer.size() - 1));
+			best.nodes = nodes;
 		}
-		// If no current nodes return the best path found
-		else return best;
+		metrics.update(expanded, nodes, layer.size(), best.pegs());
+		return best;
 	}
 	
+	/**
+	 * Perform a breadth-first search of the list of current states with the layers of the search kept in files
+	 * Repeated boards are removed from each layer by sorting, so the table of repeated boards is not used
+	 * Half of the free memory of the Java heap is used to sort each part of a layer, larger layers are split into more parts
+	 * @param current the linked list of States being currently explored
+	 * @param best the best path found so far
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
+	 */
+	public static Path dbfs(LinkedList<State> current, Path best, Pruning pruning, Metrics metrics, Deadline deadline) {
+		Runtime runtime = Runtime.getRuntime();
+		long free = runtime.maxMemory() - runtime.totalMemory() + runtime.freeMemory();
+		DiskBfs search = new DiskBfs(current.getLast(), pruning, metrics, free / 2, DiskBfs.createDirectory());
+		return search.search(best, deadline);
+	}
+
 	/**
 	 * Perform a greedy-best first search of the list of current states
+	 * The search is iterative, moves are played and taken back in place on a single board using a preallocated move stack
+	 * The successor states of each state are searched in order by heuristic value
 	 * @param current the linked list of States being currently explored
-	 * @param best the linked list of the best path of states found so far
-	 * @param startTime system time the search began
-	 * @param maxTime system time to end the search based on user input
-	 * @return updated linked list of the best path of states found so far
+	 * @param best the best path found so far
+	 * @param table boards already reached, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
 	 */
-	public static LinkedList<State> gbfs(LinkedList<State> current, LinkedList<State> best, long startTime, long maxTime) {
-		// If a state with one peg or the maximum time is reached return the best state found
-		if(goal(best.getLast()) || System.currentTimeMillis() > startTime + maxTime) return best;
-		// Sort successor states based on heuristic value
-		LinkedList<State> sortedSuccessors = new LinkedList<State>();
-		if (!successor(current.getLast()).isEmpty()) sortedSuccessors.add(successor(current.getLast()).get(0));
-		for (int i = 1; i < successor(current.getLast()).size(); i++) {
-			if (heuristic(successor(current.getLast()).get(i)) > heuristic(sortedSuccessors.getLast())) {
-				sortedSuccessors.addLast(successor(current.getLast()).get(i));
+	public static Path gbfs(LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, Deadline deadline) {
+		State start = current.getLast();
+		State board = start.copy();
+		// One row of moves for each move of the path, a path can be at most one move shorter than the number of pegs
+		int[][] moves = new int[board.pegs + 1][board.layout.maxMoves];
+		int[] values = new int[board.layout.maxMoves];
+		int[] count = new int[board.pegs + 1];
+		int[] next = new int[board.pegs + 1];
+		int[] path = new int[board.pegs + 1];
+		int depth = 0;
+		long nodes = start.nodes;
+		long expanded = 1;
+		count[0] = sortSuccessors(board, moves[0], values, table, pruning, best.pegs());
+		while (depth >= 0) {
+			// If a state with one peg or the maximum time is reached return the best state found
+			if(best.pegs() == 1 || deadline.expired()) break;
+			// When all successor states have been searched for a given state take back the last move and continue searching
+			if (next[depth] == count[depth]) {
+				depth--;
+				if (depth < 0) break;
+				board.undo(path[depth]);
+				// Publish progress for the reporter
+				metrics.update(expanded, nodes, depth, best.pegs());
+				continue;
 			}
-			else for (int j = 0; j < sortedSuccessors.size(); j++) {
-				if (heuristic(successor(current.getLast()).get(i)) <= heuristic(sortedSuccessors.get(j))) {
-					sortedSuccessors.add(j,successor(current.getLast()).get(i));
-					j = successor(current.getLast()).size();
-				}
-			}	
-		}
-		// Try each successor state for a given state
-		for (int i = 0; i < sortedSuccessors.size(); i++) {
-			current.getLast().nodes ++;
-			long lastNodes = current.getLast().nodes;
-			// Update the current state
-			current.add(sortedSuccessors.get(i));
-			current.getLast().nodes = lastNodes;
+			// Try the next successor state
+			int move = moves[depth][next[depth]++];
+			board.play(move);
+			nodes ++;
+			path[depth++] = move;
 			// If better than the best state update the best state
-			if(current.getLast().pegs < best.getLast().pegs) {
-				for (int j = 1; j < best.size(); j++) {
-					best.remove(1);
-					best.addLast(current.get(j));
-				}
-				best.add(current.getLast());
-			}
-			best.getLast().nodes = current.getLast().nodes;
+			if(board.pegs < best.pegs()) best.set(path, depth);
 			// Continue searching along current path
-			if(!goal(best.getLast())) best = gbfs(current, best, startTime, maxTime);
-		}
-		// When the for loop exits, all successor states have been searched for a given state
-		// Remove the last node and continue searching
-		if(!goal(current.getLast())) {
-			long lastNodes = current.getLast().nodes; 
-			current.removeLast();
-			if(!current.isEmpty()) current.getLast().nodes = lastNodes;
+			count[depth] = sortSuccessors(board, moves[depth], values, table, pruning, best.pegs());
+			next[depth] = 0;
+			expanded ++;
 		}
-		// Continuous output to display progress
-		if(!current.isEmpty()) System.out.println("Best: " + best.getLast().pegs + " pegs, Current: " + current.getLast().pegs + " pegs, " + best.getLast().nodes + " nodes explored.");
+		metrics.update(expanded, nodes, 0, best.pegs());
+		best.nodes = nodes;
 		return best;
 	}
 
+	/**
+	 * List the moves of a state that reach boards not already in the table, sorted by the heuristic value of the resulting state
+	 * Successor states with equal heuristic values are tried in the reverse of the order they were generated
+	 * @param board state to list moves of, the state is unchanged when the method returns
+	 * @param moves buffer for the sorted moves
+	 * @param values buffer for the heuristic values of the sorted moves
+	 * @param table boards already reached, boards found in the table are left out
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found, pruned boards are left out
+	 * @param bestPegs number of pegs on the best board found so far
+	 * @return number of moves written to the buffer
+	 */
+	static int sortSuccessors(State board, int[] moves, int[] values, TranspositionTable table, Pruning pruning, int bestPegs) {
+		int count = board.moves(moves);
+		int sorted = 0;
+		for (int i = 0; i < count; i++) {
+			int move = moves[i];
+			board.play(move);
+			if (table.add(board) && !pruning.prune(board, bestPegs)) {
+				int value = board.heuristic;
+				// Insert before the first move with an equal or greater heuristic value
+				int j = sorted;
+				while (j > 0 && value <= values[j - 1]) {
+					moves[j] = moves[j - 1];
+					values[j] = values[j - 1];
+					j--;
+				}
+				moves[j] = move;
+				values[j] = value;
+				sorted++;
+			}
+			board.undo(move);
+		}
+		return sorted;
+	}
+
 	/**
 	 * Perform an A* search search of the list of current states
+	 * States are ordered by cost, the number of moves made plus the heuristic value carried by the state
+	 * @param current the linked list of States being currently explored
+	 * @param best the best path found so far
+	 * @param table boards already reached, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
+	 */
+	public static Path astar(LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, Deadline deadline) {
+		return wastar(current, best, table, pruning, metrics, 1, deadline);
+	}
+
+	/**
+	 * Perform a weighted A* search of the list of current states
+	 * The search is iterative, states waiting to be expanded are kept in a binary heap Frontier
+	 * States are ordered by cost, the number of moves made plus the heuristic value carried by the state times the weight
+	 * A weight above 1 favors states close to the goal, so fewer states are expanded before a good board is found
 	 * @param current the linked list of States being currently explored
-	 * @param best the linked list of the best path of states found so far
-	 * @param startTime system time the search began
-	 * @param maxTime system time to end the search based on user input
-	 * @return updated linked list of the best path of states found so far
+	 * @param best the best path found so far
+	 * @param table boards already reached, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param weight weight of the heuristic value, 1 for an A* search
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
 	 */
-	public static LinkedList<State> astar(LinkedList<State> current, LinkedList<State> best, long startTime, long maxTime) {
+	public static Path wastar(LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, double weight, Deadline deadline) {
+		int startPegs = best.start.pegs;
+		long nodes = best.nodes;
+		long expanded = 0;
+		Frontier open = new Frontier();
+		for (State s : current) {
+			s.heuristic = heuristic(s);
+			open.add(s, startPegs - s.pegs + (int) (weight * s.heuristic));
+		}
 		// If a state with one peg or the maximum time is reached return the best state found
-		if(goal(best.getLast()) || System.currentTimeMillis() > startTime + maxTime) return best;
-		// Remove states with no successor states 
-		while (current.getFirst().pegs >= best.getLast().pegs && System.currentTimeMillis() < startTime + maxTime) {
-			while (successor(current.getFirst()).isEmpty()) {
-				current.removeFirst();
-				// No solutions exist, return best solution found
-				if(current.isEmpty()) return best;
+		while (!open.isEmpty() && best.pegs() != 1 && !deadline.expired()) {
+			// Remove the state with the lowest cost to expand
+			State searchState = open.poll();
+			// Update the best path found
+			if (searchState.pegs < best.pegs()) {
+				best.set(searchState);
+				if (goal(searchState)) break;
 			}
-			// Remove first node with successor states to expand
-			State searchState = new State();
-			searchState = current.removeFirst();
-			// Add successor states in order by heuristic value
-			for (int i = 0; i < successor(searchState).size(); i++) {
-				if (current.isEmpty()) current.addLast(successor(searchState).get(i));
-				else if (heuristic(successor(searchState).get(i)) > heuristic(current.getLast())) {
-					current.addLast(successor(searchState).get(i));
-				}
-				else for (int j = 0; j < current.size(); j++) {
-					if (heuristic(successor(searchState).get(i)) <= heuristic(current.get(j))) {
-						current.add(j,successor(searchState).get(i));
-						j = current.size();
-					}
+			// Add successor states to the frontier by cost
+			for (State child : new Successors(searchState)) {
+				if (!table.add(child) || pruning.prune(child, best.pegs())) continue;
+				open.add(child, startPegs - child.pegs + (int) (weight * child.heuristic));
+				nodes ++;
+			}
+			// Publish progress for the reporter
+			metrics.update(++expanded, nodes, open.size(), best.pegs());
+		}
+		metrics.update(expanded, nodes, open.size(), best.pegs());
+		best.nodes = nodes;
+		return best;
+	}
+
+	/**
+	 * Perform a beam search of the list of current states
+	 * The search is a breadth-first search that keeps only the states with the lowest heuristic values of each layer,
+	 * so memory is bounded by the width of the beam however large the board
+	 * The next layer is kept in a Frontier ordered by the negated heuristic value, so the state with the highest value is removed
+	 * whenever the layer grows past the width
+	 * @param current the linked list of States being currently explored
+	 * @param best the best path found so far
+	 * @param table boards already reached, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param width number of states kept in each layer
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
+	 */
+	public static Path beam(LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, int width, Deadline deadline) {
+		ArrayList<State> layer = new ArrayList<State>(current);
+		long nodes = best.nodes;
+		long expanded = 0;
+		// If a state with one peg or the maximum time is reached return the best state found
+		while (best.pegs() != 1 && !deadline.expired()) {
+			// Generate the next layer, keeping the states with the lowest heuristic values
+			Frontier nextLayer = new Frontier();
+			for (int x = 0; x < layer.size(); x++) {
+				for (State child : new Successors(layer.get(x))) {
+					if (!table.add(child) || pruning.prune(child, best.pegs())) continue;
+					nextLayer.add(child, -child.heuristic);
+					if (nextLayer.size() > width) nextLayer.poll();
+					nodes ++;
 				}
-				best.getFirst().nodes ++;
+				// Publish progress for the reporter
+				metrics.update(++expanded, nodes, layer.size() - x - 1 + nextLayer.size(), best.pegs());
+				if(deadline.expired()) break;
 			}
-			// Continuous output to display progress
-			System.out.println("Best: " + best.getLast().pegs + " pegs, Current: " + current.getFirst().pegs + " pegs, " + best.getFirst().nodes + " nodes explored.");
+			// If no current nodes return the best path found
+			if (nextLayer.isEmpty()) break;
+			// States leave the frontier from the highest heuristic value to the lowest
+			layer = new ArrayList<State>(nextLayer.size());
+			while (!nextLayer.isEmpty()) layer.add(nextLayer.poll());
+			// Update the best path found, every state of a layer has the same number of pegs
+			best.set(layer.get(layer.size() - 1));
+			best.nodes = nodes;
 		}
-		// Update the best path found
-		if (current.getFirst().pegs < best.getLast().pegs) {
-			best.addFirst(current.getFirst());
-			for (int i = 1; i < best.size(); i++) {
-				best.removeLast();
-				best.addFirst(best.getFirst().parent);
+		metrics.update(expanded, nodes, layer.size(), best.pegs());
+		return best;
+	}
+
+	/**
+	 * Perform an iterative deepening A* search of the list of current states
+	 * The cost of a board is a lower bound on the pegs it can finish with, found by the position class, isolated peg and pagoda tests
+	 * of Pruning.create, the bound never overestimates the pegs left at the end and never falls as moves are played
+	 * Each iteration is a depth-first search that plays and takes back moves in place on a single board using a preallocated move stack,
+	 * leaving out boards that can not finish with the bound or fewer pegs, and ends as soon as a board with that many pegs is reached
+	 * The first bound is the fewest pegs the position class allows and each iteration that left out a board raises the bound by one,
+	 * so the first board found that meets the bound has the fewest pegs any board can reach and memory is bounded by the path
+	 * The test of a board does not depend on the path to it, so the table is only cleared between iterations
+	 * @param current the linked list of States being currently explored
+	 * @param best the best path found so far
+	 * @param table boards already reached in this iteration, repeated boards are not searched again
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found
+	 * @param metrics progress counters of the search, read by a Reporter while the search runs
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 * @return updated best path found so far
+	 */
+	public static Path idastar(LinkedList<State> current, Path best, TranspositionTable table, Pruning pruning, Metrics metrics, Deadline deadline) {
+		State start = current.getLast();
+		State board = start.copy();
+		// One row of moves for each move of the path, a path can be at most one move shorter than the number of pegs
+		int[][] moves = new int[board.pegs + 1][board.layout.maxMoves];
+		int[] count = new int[board.pegs + 1];
+		int[] next = new int[board.pegs + 1];
+		int[] path = new int[board.pegs + 1];
+		long nodes = start.nodes;
+		long expanded = 0;
+		// The bounds are used whether or not pruning was selected, they are part of the search and are not counted as pruned boards
+		Pruning bounds = Pruning.create(start);
+		int bound = bounds.fewestPegs;
+		// If a board that meets the bound or the maximum time is reached return the best state found
+		while (best.pegs() > bound && !deadline.expired()) {
+			boolean leftOut = false;
+			table.clear();
+			table.add(board);
+			int depth = 0;
+			count[0] = board.moves(moves[0]);
+			next[0] = 0;
+			expanded ++;
+			while (depth >= 0) {
+				if(best.pegs() <= bound || deadline.expired()) break;
+				// When all successor states have been searched for a given state take back the last move and continue searching
+				if (next[depth] == count[depth]) {
+					depth--;
+					if (depth < 0) break;
+					board.undo(path[depth]);
+					// Publish progress for the reporter
+					metrics.update(expanded, nodes, depth, best.pegs());
+					continue;
+				}
+				// Try the next successor state, leaving boards that can not finish with the bound or fewer pegs for the next iteration
+				int move = moves[depth][next[depth]++];
+				board.play(move);
+				if (bounds.prune(board, bound + 1)) {
+					leftOut = true;
+					board.undo(move);
+					continue;
+				}
+				if (!table.add(board) || pruning.prune(board, best.pegs())) {
+					board.undo(move);
+					continue;
+				}
+				nodes ++;
+				path[depth++] = move;
+				// If better than the best state update the best state
+				if(board.pegs < best.pegs()) best.set(path, depth);
+				// Continue searching along current path
+				count[depth] = board.moves(moves[depth]);
+				next[depth] = 0;
+				expanded ++;
 			}
+			// If no board was left out every board has been searched
+			if (!leftOut) break;
+			bound ++;
 		}
-		best.getLast().nodes = best.getFirst().nodes;
-		best = astar(current, best, startTime, maxTime);
+		metrics.update(expanded, nodes, 0, best.pegs());
+		best.nodes = nodes;
 		return best;
 	}
 
@@ -414,40 +828,25 @@ public class GameInputOutput {
 	 */
 	public static LinkedList<State> successor(State s) {
 		LinkedList<State> successorStates = new LinkedList<State>(); 
-		// For each peg check moves in all directions and adds possible states to a linked list
-		for (int i = 0; i < s.width * s.height; i++) {
-			if(s.lookRight(i)) successorStates.add(s.moveRight(i));
-			if(s.lookDown(i)) successorStates.add(s.moveDown(i));
-			if(s.lookLeft(i)) successorStates.add(s.moveLeft(i));
-			if(s.lookUp(i)) successorStates.add(s.moveUp(i));
-			// Diagonal moves for bonus puzzle 6
-			// Uncomment these lines for diagonal moves in bonus puzzle 6
-			// Dynamically configuring this functionality has not been added
-			// if(s.lookUpLeft(i)) successorStates.add(s.moveUpLeft(i));
-			// if(s.lookDownRight(i)) successorStates.add(s.moveDownRight(i));
-		}
+		// List the moves of every peg allowed by the topology of the layout and add the resulting states to a linked list
+		// Diagonal moves for bonus puzzle 6 are enabled by selecting the triangular topology
+		// Searches iterate over Successors directly so each successor state is only created once
+		for (State child : new Successors(s)) successorStates.add(child);
 		return successorStates;
 	}
 	
 	/**
 	 * Given a state, returns the heuristic function value
 	 * Value is based on Manhattan distance from center with additional penalty for pegs on the edges 
+	 * The value of each space is precomputed in the layout of the board, see Layout.weight
+	 * States carry their heuristic value and update it when a move is played, so this full count is only needed for a starting state
 	 * @param s state to determine a heuristic value
 	 * @return heuristic value for a state
 	 */
 	public static int heuristic(State s) {
 		int value = 0;
-		for (int i = 0; i < s.board.length; i++) {
-			if(s.board[i] == 1) {
-				// Manhattan distance calculated as the sum of horizontal and vertical distance from the center
-				value = value + Math.abs(i / s.height - s.height/2);
-				value = value + Math.abs(i % s.width - s.width/2);
-				// Additional penalty for pegs on the edges
-				value = (i / s.height == 0) ? value + 1 : value;
-				value = (i / s.height == s.height - 1) ? value + 1 : value;
-				value = (i % s.width == 0) ? value + 1 : value;
-				value = (i % s.width == s.width - 1) ? value + 1 : value;
-			}
+		for (int i = 0; i < s.layout.size; i++) {
+			if(s.peg(i)) value = value + s.layout.weight[i];
 		}
 		return value;
 	}
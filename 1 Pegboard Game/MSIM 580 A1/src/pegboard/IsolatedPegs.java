@@ -0,0 +1,106 @@
+package pegboard;
+
+/**
+ * The IsolatedPegs class counts pegs that can never move or be jumped, every one of them remains on the board at the end of the game
+ * The spaces a peg could ever reach are found by repeatedly adding the landing spaces of jumps between spaces that could hold pegs,
+ * ignoring whether landing spaces are empty so the set is never too small
+ * A peg that can not jump over or be jumped by any of those spaces is isolated, and a board with n isolated pegs ends with at least n pegs
+ * A single isolated peg is also fatal to finishing with one peg when it is not on a space allowed by the PositionClass
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class IsolatedPegs implements Pruner {
+
+	/**
+	 * Declare variables for the IsolatedPegs class
+	 * jumpLow and jumpHigh mark, for each direction, the spaces a jump can start from with all three spaces of the jump on the board
+	 */
+	Layout layout;
+	long[] jumpLow = new long[8];
+	long[] jumpHigh = new long[8];
+	long targetLow;
+	long targetHigh;
+
+	/**
+	 * Create the pruner for a board
+	 * @param layout layout of the board
+	 * @param targets spaces the last peg can finish on
+	 */
+	public IsolatedPegs(Layout layout, PositionClass targets) {
+		this.layout = layout;
+		targetLow = targets.targetLow;
+		targetHigh = targets.targetHigh;
+		for (int d : layout.directions) {
+			int k = layout.offset[d];
+			jumpLow[d] = layout.sourceLow[d] & layout.validLow & Layout.shiftLow(layout.validLow, layout.validHigh, k)
+					& Layout.shiftLow(layout.validLow, layout.validHigh, 2 * k);
+			jumpHigh[d] = layout.sourceHigh[d] & layout.validHigh & Layout.shiftHigh(layout.validLow, layout.validHigh, k)
+					& Layout.shiftHigh(layout.validLow, layout.validHigh, 2 * k);
+		}
+	}
+
+	@Override
+	public String name() {
+		return "isolated pegs";
+	}
+
+	@Override
+	public boolean prune(State s, int bestPegs) {
+		Layout l = layout;
+		// Pegs next to another peg along a jump are never isolated, most boards have too few other pegs left to be pruned
+		long candidateLow = s.low & ~free(l, s.low, s.high, 0);
+		long candidateHigh = s.high & ~free(l, s.low, s.high, 1);
+		int candidates = Long.bitCount(candidateLow) + Long.bitCount(candidateHigh);
+		if (candidates < bestPegs && (bestPegs > 2 || ((candidateLow & ~targetLow) == 0 && (candidateHigh & ~targetHigh) == 0))) return false;
+		// Grow the set of spaces that could ever hold a peg until it stops changing
+		long fillLow = s.low;
+		long fillHigh = s.high;
+		boolean grown = true;
+		while (grown && (fillLow != l.validLow || fillHigh != l.validHigh)) {
+			long nextLow = fillLow;
+			long nextHigh = fillHigh;
+			for (int d : l.directions) {
+				int k = l.offset[d];
+				long fromLow = fillLow & Layout.shiftLow(fillLow, fillHigh, k) & jumpLow[d];
+				long fromHigh = fillHigh & Layout.shiftHigh(fillLow, fillHigh, k) & jumpHigh[d];
+				nextLow |= Layout.shiftLow(fromLow, fromHigh, -2 * k);
+				nextHigh |= Layout.shiftHigh(fromLow, fromHigh, -2 * k);
+			}
+			grown = nextLow != fillLow || nextHigh != fillHigh;
+			fillLow = nextLow;
+			fillHigh = nextHigh;
+		}
+		// Mark the pegs that could jump over a space that could hold a peg, or be jumped by a peg from such a space
+		long isolatedLow = s.low & ~free(l, fillLow, fillHigh, 0);
+		long isolatedHigh = s.high & ~free(l, fillLow, fillHigh, 1);
+		int isolated = Long.bitCount(isolatedLow) + Long.bitCount(isolatedHigh);
+		if (isolated >= bestPegs) return true;
+		// A lone isolated peg must be the last peg, which needs it to be on a space the last peg can finish on
+		return bestPegs <= 2 && isolated == 1 && (isolatedLow & targetLow) == 0 && (isolatedHigh & targetHigh) == 0;
+	}
+
+	/**
+	 * Mark the spaces whose peg could jump over a space of a set, or be jumped by a peg from a space of the set
+	 * @param l layout of the board
+	 * @param fillLow bits 0 to 63 of the set
+	 * @param fillHigh bits 64 to 127 of the set
+	 * @param word 0 for bits 0 to 63 of the result, 1 for bits 64 to 127
+	 * @return one half of the marked spaces
+	 */
+	private long free(Layout l, long fillLow, long fillHigh, int word) {
+		long free = 0;
+		for (int d : l.directions) {
+			int k = l.offset[d];
+			if (word == 0) {
+				free |= jumpLow[d] & Layout.shiftLow(fillLow, fillHigh, k);
+				free |= Layout.shiftLow(fillLow & jumpLow[d], fillHigh & jumpHigh[d], -k);
+			}
+			else {
+				free |= jumpHigh[d] & Layout.shiftHigh(fillLow, fillHigh, k);
+				free |= Layout.shiftHigh(fillLow & jumpLow[d], fillHigh & jumpHigh[d], -k);
+			}
+		}
+		return free;
+	}
+}
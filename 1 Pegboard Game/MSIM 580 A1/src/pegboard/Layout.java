@@ -0,0 +1,385 @@
+package pegboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The Layout class represents the fixed shape of a pegboard
+ * Spaces are numbered row by row and each space is a bit in a pair of longs, so boards of up to 128 spaces are supported
+ * The Layout class holds the masks and offsets States use to find peg movements with shifts instead of index arithmetic
+ * Layouts never change during a search and are shared by every State of a pegboard
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Layout {
+
+	/**
+	 * Directions a peg can move, in the order moves are generated for each peg
+	 */
+	public static final int RIGHT = 0;
+	public static final int DOWN = 1;
+	public static final int LEFT = 2;
+	public static final int UP = 3;
+	public static final int UP_LEFT = 4;
+	public static final int DOWN_RIGHT = 5;
+	public static final int UP_RIGHT = 6;
+	public static final int DOWN_LEFT = 7;
+
+	/**
+	 * Largest pegboard that fits in two longs
+	 */
+	public static final int MAX_SPACES = 128;
+
+	/**
+	 * Row and column steps for each direction
+	 */
+	static final int[] ROW_STEP = {0, 1, 0, -1, -1, 1, -1, 1};
+	static final int[] COLUMN_STEP = {1, 0, -1, 0, -1, 1, 1, -1};
+
+	/**
+	 * Declare variables for the Layout class
+	 * validLow and validHigh mark the spaces that are part of the board, spaces marked 8 in the input are left out
+	 * offset is the index distance of one step in each direction
+	 * sourceLow and sourceHigh mark the spaces a peg can jump from in each direction without leaving the board
+	 */
+	byte height;
+	byte width;
+	int size;
+	long validLow;
+	long validHigh;
+	int[] offset = new int[8];
+	long[] sourceLow = new long[8];
+	long[] sourceHigh = new long[8];
+	Topology topology = Topology.ORTHOGONAL;
+	int[] directions = topology.directions;
+	int maxMoves;
+
+	/**
+	 * Table of every move that stays on the board, as packed moves grouped by the space the peg jumps from
+	 * The moves of space i are moveTable[moveStart[i]] to moveTable[moveStart[i + 1] - 1], in the order of the directions
+	 */
+	int[] moveTable;
+	int[] moveStart;
+
+	/**
+	 * Heuristic value of a peg in each space, based on Manhattan distance from center with additional penalty for pegs on the edges
+	 */
+	int[] weight;
+
+	/**
+	 * Rotations and mirror images of the board other than the identity that map the board and its directions onto themselves
+	 * Each symmetry is a lookup table giving the transformed low and high longs for every byte value of every byte of the board
+	 * symmetryMaps give the transformed index of every space for each symmetry, inverses give the symmetry that undoes each symmetry
+	 */
+	long[][] symmetries = new long[0][];
+	int[][] symmetryMaps = new int[0][];
+	int[] inverses = new int[0];
+	int chunks;
+
+	/**
+	 * Create the layout of a pegboard from the spaces read from an input file
+	 * @param height number of rows
+	 * @param width number of columns
+	 * @param spaces one character per space, 8 marks a space that is not part of the board
+	 */
+	public Layout(byte height, byte width, String spaces) {
+		if (height * width > MAX_SPACES) throw new IllegalArgumentException("Pegboards are limited to " + MAX_SPACES + " spaces");
+		this.height = height;
+		this.width = width;
+		size = height * width;
+		chunks = (size + 7) / 8;
+		for (int i = 0; i < size; i++) {
+			if (spaces.charAt(i) != '8') {
+				if (i < 64) validLow |= 1L << i;
+				else validHigh |= 1L << i;
+			}
+		}
+		for (int d = 0; d < 8; d++) {
+			offset[d] = ROW_STEP[d] * width + COLUMN_STEP[d];
+			for (int i = 0; i < size; i++) {
+				int row = i / width + 2 * ROW_STEP[d];
+				int column = i % width + 2 * COLUMN_STEP[d];
+				if (row >= 0 && row < height && column >= 0 && column < width) {
+					if (i < 64) sourceLow[d] |= 1L << i;
+					else sourceHigh[d] |= 1L << i;
+				}
+			}
+		}
+		weight = new int[size];
+		for (int i = 0; i < size; i++) {
+			// Manhattan distance calculated as the sum of horizontal and vertical distance from the center
+			// Spaces are numbered row by row, so the row of a space is its index divided by the width
+			weight[i] = Math.abs(i / width - height/2) + Math.abs(i % width - width/2);
+			// Additional penalty for pegs on the edges
+			weight[i] = (i / width == 0) ? weight[i] + 1 : weight[i];
+			weight[i] = (i / width == height - 1) ? weight[i] + 1 : weight[i];
+			weight[i] = (i % width == 0) ? weight[i] + 1 : weight[i];
+			weight[i] = (i % width == width - 1) ? weight[i] + 1 : weight[i];
+		}
+		setDirections(directions);
+	}
+
+	/**
+	 * Select the set of directions pegs are allowed to move in on this board
+	 * @param topology orthogonal, diagonal or triangular moves
+	 */
+	public void setTopology(Topology topology) {
+		this.topology = topology;
+		setDirections(topology.directions);
+	}
+
+	/**
+	 * Select the directions pegs are allowed to move on this board and build the table of moves
+	 * @param directions direction constants in the order moves should be generated
+	 */
+	public void setDirections(int... directions) {
+		this.directions = directions;
+		moveStart = new int[size + 1];
+		int[] table = new int[size * directions.length];
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			moveStart[i] = count;
+			if (!valid(i)) continue;
+			for (int d : directions) {
+				int k = offset[d];
+				if (State.bit(sourceLow[d], sourceHigh[d], i) && valid(i + k) && valid(i + 2 * k)) table[count++] = move(i, i + k, i + 2 * k);
+			}
+		}
+		moveStart[size] = count;
+		moveTable = Arrays.copyOf(table, count);
+		maxMoves = count;
+		findSymmetries();
+	}
+
+	/**
+	 * Find the rotations and mirror images that leave the shape of the board and the allowed directions unchanged
+	 * Rotations by 90 degrees and diagonal mirror images are only possible on square boards
+	 */
+	private void findSymmetries() {
+		ArrayList<long[]> found = new ArrayList<long[]>();
+		ArrayList<int[]> foundMaps = new ArrayList<int[]>();
+		for (int t = 1; t < 8; t++) {
+			if (height != width && (t == 1 || t == 3 || t == 6 || t == 7)) continue;
+			// The directions must be mapped onto allowed directions
+			boolean symmetric = true;
+			for (int d : directions) {
+				int rowStep = transformRow(t, ROW_STEP[d], COLUMN_STEP[d], 0, 0);
+				int columnStep = transformColumn(t, ROW_STEP[d], COLUMN_STEP[d], 0, 0);
+				boolean allowed = false;
+				for (int e : directions) allowed |= ROW_STEP[e] == rowStep && COLUMN_STEP[e] == columnStep;
+				symmetric &= allowed;
+			}
+			// The spaces of the board must be mapped onto spaces of the board
+			int[] map = new int[size];
+			for (int i = 0; i < size && symmetric; i++) {
+				map[i] = transformRow(t, i / width, i % width, height - 1, width - 1) * width + transformColumn(t, i / width, i % width, height - 1, width - 1);
+				symmetric = valid(i) == valid(map[i]);
+			}
+			if (!symmetric) continue;
+			long[] table = new long[chunks * 256 * 2];
+			for (int k = 0; k < chunks; k++) {
+				for (int v = 0; v < 256; v++) {
+					for (int j = 0; j < 8 && 8 * k + j < size; j++) {
+						if ((v >>> j & 1) == 0) continue;
+						int to = map[8 * k + j];
+						if (to < 64) table[(k << 8 | v) << 1] |= 1L << to;
+						else table[(k << 8 | v) << 1 | 1] |= 1L << to;
+					}
+				}
+			}
+			found.add(table);
+			foundMaps.add(map);
+		}
+		symmetries = found.toArray(new long[0][]);
+		symmetryMaps = foundMaps.toArray(new int[0][]);
+		// The symmetries found are closed under taking the inverse, a mirror image is its own inverse
+		inverses = new int[symmetryMaps.length];
+		for (int t = 0; t < symmetryMaps.length; t++) {
+			for (int u = 0; u < symmetryMaps.length; u++) {
+				boolean inverse = true;
+				for (int i = 0; i < size && inverse; i++) inverse = !valid(i) || symmetryMaps[u][symmetryMaps[t][i]] == i;
+				if (inverse) inverses[t] = u;
+			}
+		}
+	}
+
+	/**
+	 * Find the canonical board of a bitboard, the smallest of its symmetric copies
+	 * Boards are compared by their high long and then their low long
+	 * @param low bits 0 to 63 of the board
+	 * @param high bits 64 to 127 of the board
+	 * @param key receives the low and high long of the canonical board
+	 * @return index of the symmetry that gives the canonical board, -1 if the board is its own canonical board
+	 */
+	int canonical(long low, long high, long[] key) {
+		long bestLow = low;
+		long bestHigh = high;
+		int best = -1;
+		for (int t = 0; t < symmetries.length; t++) {
+			long[] table = symmetries[t];
+			long symmetricLow = 0;
+			long symmetricHigh = 0;
+			for (int k = 0; k < chunks; k++) {
+				int v = (int) ((k < 8 ? low : high) >>> (k << 3) & 0xFF);
+				if (v == 0) continue;
+				symmetricLow |= table[(k << 8 | v) << 1];
+				symmetricHigh |= table[(k << 8 | v) << 1 | 1];
+			}
+			if (symmetricHigh < bestHigh || symmetricHigh == bestHigh && symmetricLow < bestLow) {
+				bestLow = symmetricLow;
+				bestHigh = symmetricHigh;
+				best = t;
+			}
+		}
+		key[0] = bestLow;
+		key[1] = bestHigh;
+		return best;
+	}
+
+	/**
+	 * Apply a symmetry to a bitboard
+	 * @param low bits 0 to 63 of the board
+	 * @param high bits 64 to 127 of the board
+	 * @param t index of the symmetry in symmetries
+	 * @param board receives the low and high long of the transformed board
+	 */
+	void transform(long low, long high, int t, long[] board) {
+		long[] table = symmetries[t];
+		long symmetricLow = 0;
+		long symmetricHigh = 0;
+		for (int k = 0; k < chunks; k++) {
+			int v = (int) ((k < 8 ? low : high) >>> (k << 3) & 0xFF);
+			if (v == 0) continue;
+			symmetricLow |= table[(k << 8 | v) << 1];
+			symmetricHigh |= table[(k << 8 | v) << 1 | 1];
+		}
+		board[0] = symmetricLow;
+		board[1] = symmetricHigh;
+	}
+
+	/**
+	 * Row of a space after applying symmetry t, rotations are clockwise
+	 * Passing 0 for the last row and column transforms a direction instead of a space
+	 * @param t symmetry, 1 to 3 rotate by 90, 180 and 270 degrees and 4 to 7 mirror across the vertical, horizontal and both diagonal axes
+	 * @param row row of the space
+	 * @param column column of the space
+	 * @param lastRow index of the last row
+	 * @param lastColumn index of the last column
+	 * @return transformed row
+	 */
+	static int transformRow(int t, int row, int column, int lastRow, int lastColumn) {
+		switch (t) {
+			case 1: return column;
+			case 2: return lastRow - row;
+			case 3: return lastColumn - column;
+			case 5: return lastRow - row;
+			case 6: return column;
+			case 7: return lastColumn - column;
+			default: return row;
+		}
+	}
+
+	/**
+	 * Column of a space after applying symmetry t
+	 * @param t symmetry as described in transformRow
+	 * @param row row of the space
+	 * @param column column of the space
+	 * @param lastRow index of the last row
+	 * @param lastColumn index of the last column
+	 * @return transformed column
+	 */
+	static int transformColumn(int t, int row, int column, int lastRow, int lastColumn) {
+		switch (t) {
+			case 1: return lastRow - row;
+			case 2: return lastColumn - column;
+			case 3: return row;
+			case 4: return lastColumn - column;
+			case 6: return row;
+			case 7: return lastRow - row;
+			default: return column;
+		}
+	}
+
+	/**
+	 * Returns true if space i is part of the board
+	 * @param i index of the space
+	 * @return true if space i is not marked 8
+	 */
+	public boolean valid(int i) {
+		return State.bit(validLow, validHigh, i);
+	}
+
+	/**
+	 * Shift a 128 bit set so that bit i of the result is bit i + k of the input, returning the low long
+	 * @param low bits 0 to 63
+	 * @param high bits 64 to 127
+	 * @param k distance to shift, negative values shift towards higher indexes
+	 * @return bits 0 to 63 of the shifted set
+	 */
+	static long shiftLow(long low, long high, int k) {
+		if (k >= 0) {
+			if (k == 0) return low;
+			if (k < 64) return low >>> k | high << (64 - k);
+			return k < 128 ? high >>> (k - 64) : 0;
+		}
+		return k > -64 ? low << -k : 0;
+	}
+
+	/**
+	 * Shift a 128 bit set so that bit i of the result is bit i + k of the input, returning the high long
+	 * @param low bits 0 to 63
+	 * @param high bits 64 to 127
+	 * @param k distance to shift, negative values shift towards higher indexes
+	 * @return bits 64 to 127 of the shifted set
+	 */
+	static long shiftHigh(long low, long high, int k) {
+		if (k >= 0) return k < 64 ? high >>> k : 0;
+		if (k > -64) return high << -k | low >>> (64 + k);
+		return k > -128 ? low << (-k - 64) : 0;
+	}
+
+	/**
+	 * Change in heuristic value when a move is played, the jumping and jumped pegs are removed and a peg is added where it lands
+	 * @param move packed move
+	 * @return heuristic value after the move minus the value before it
+	 */
+	int delta(int move) {
+		return weight[to(move)] - weight[from(move)] - weight[over(move)];
+	}
+
+	/**
+	 * Pack a move into a single int
+	 * @param from index of the peg that jumps
+	 * @param over index of the peg that is removed
+	 * @param to index of the empty space the peg lands in
+	 * @return packed move
+	 */
+	public static int move(int from, int over, int to) {
+		return from | over << 8 | to << 16;
+	}
+
+	/**
+	 * @param move packed move
+	 * @return index of the peg that jumps
+	 */
+	public static int from(int move) {
+		return move & 0xFF;
+	}
+
+	/**
+	 * @param move packed move
+	 * @return index of the peg that is removed
+	 */
+	public static int over(int move) {
+		return move >>> 8 & 0xFF;
+	}
+
+	/**
+	 * @param move packed move
+	 * @return index of the empty space the peg lands in
+	 */
+	public static int to(int move) {
+		return move >>> 16 & 0xFF;
+	}
+}
@@ -0,0 +1,118 @@
+package pegboard;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The Metrics class holds the progress counters of a search so they can be read by a Reporter while the search runs
+ * Searches keep their counts in local variables and copy them into the metrics, so the search itself does no I/O
+ * Counters are written and read with opaque access, which costs no more than a plain write but is never held back from other threads
+ * Repeated and pruned boards are not copied, they are read from the table and the pruning stage of the search
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Metrics {
+
+	/**
+	 * Indexes of the counters
+	 * EXPANDED counts boards whose moves were listed, NODES counts boards added to the search, the same count as nodes explored
+	 * REPEATED counts repeated boards found by searches that do not use the table, FRONTIER is the number of boards waiting to be
+	 * expanded, for the depth-first searches the depth of the board being searched and for the parallel search the tasks waiting to be
+	 * stolen, and BEST_PEGS is the pegs on the best board found
+	 */
+	static final int EXPANDED = 0;
+	static final int NODES = 1;
+	static final int REPEATED = 2;
+	static final int FRONTIER = 3;
+	static final int BEST_PEGS = 4;
+
+	/**
+	 * Counters are read and written with opaque access so a long is never split between two writes
+	 */
+	static final VarHandle COUNTERS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * Declare variables for the Metrics class
+	 */
+	long[] counters = new long[5];
+	TranspositionTable table;
+	Pruning pruning;
+	long startTime;
+
+	/**
+	 * Create the metrics of a search
+	 * @param start state the search begins with
+	 * @param table boards already reached by the search, its repeated boards are reported
+	 * @param pruning pruning stage of the search, its pruned boards are reported
+	 */
+	public Metrics(State start, TranspositionTable table, Pruning pruning) {
+		this.table = table;
+		this.pruning = pruning;
+		startTime = System.currentTimeMillis();
+		set(NODES, start.nodes);
+		set(BEST_PEGS, start.pegs);
+	}
+
+	/**
+	 * Copy the counts of a single threaded search into the metrics
+	 * @param expanded boards whose moves were listed
+	 * @param nodes boards added to the search
+	 * @param frontier boards waiting to be expanded
+	 * @param bestPegs pegs on the best board found
+	 */
+	public void update(long expanded, long nodes, long frontier, int bestPegs) {
+		set(EXPANDED, expanded);
+		set(NODES, nodes);
+		set(FRONTIER, frontier);
+		set(BEST_PEGS, bestPegs);
+	}
+
+	/**
+	 * @param counter index of a counter
+	 * @param value new value of the counter
+	 */
+	public void set(int counter, long value) {
+		COUNTERS.setOpaque(counters, counter, value);
+	}
+
+	/**
+	 * Add to a counter shared by several threads
+	 * @param counter index of a counter
+	 * @param value amount to add
+	 */
+	public void add(int counter, long value) {
+		COUNTERS.getAndAdd(counters, counter, value);
+	}
+
+	/**
+	 * @param counter index of a counter
+	 * @return current value of the counter
+	 */
+	public long get(int counter) {
+		return (long) COUNTERS.getOpaque(counters, counter);
+	}
+
+	/**
+	 * @return repeated boards skipped by the search
+	 */
+	public long repeated() {
+		return get(REPEATED) + (table == null ? 0 : table.repeated.sum());
+	}
+
+	/**
+	 * @return boards rejected by every pruner of the search
+	 */
+	public long pruned() {
+		long pruned = 0;
+		if (pruning != null) for (int p = 0; p < pruning.pruned.length; p++) pruned += pruning.pruned[p].sum();
+		return pruned;
+	}
+
+	/**
+	 * @return successor boards generated, those added to the search, repeated or pruned
+	 */
+	public long generated() {
+		return get(NODES) + repeated() + pruned();
+	}
+}
@@ -0,0 +1,163 @@
+package pegboard;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The Pagoda class tests boards against pagoda functions, weights on the spaces of the board that no move can increase the total of
+ * A move removes the pegs on its first two spaces and adds a peg on the third, so weights with w(first) + w(second) >= w(third)
+ * for every move mean the total weight of the pegs never grows, and a board can only finish with one peg on a space if its total
+ * is at least the weight of that space
+ * One pagoda function is built for each space the last peg can finish on, weighting each space by the Fibonacci number of its
+ * distance from the finishing space counted down, so two steps towards the finish are worth exactly one step further away
+ * Pagoda functions only tell whether one peg can remain, so they are used once the best board found has two pegs
+ * Weights are longs, a board with a space farther than MAX_DISTANCE steps from a finishing space gets no pagoda functions
+ * because the total weight of its pegs could overflow
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Pagoda implements Pruner {
+
+	/**
+	 * Largest distance from a finishing space that is weighted, the weight of the farthest space is the Fibonacci number
+	 * MAX_DISTANCE + 2, and 128 pegs of that weight still total less than Long.MAX_VALUE
+	 */
+	static final int MAX_DISTANCE = 80;
+
+	/**
+	 * Declare variables for the Pagoda class
+	 * For each finishing space the weights are grouped into levels, levelLow and levelHigh mark the spaces of each level
+	 * in order of decreasing weight, levelWeight gives the weight of each level and threshold the weight of the finishing space
+	 */
+	long[][] levelLow;
+	long[][] levelHigh;
+	long[][] levelWeight;
+	long[] threshold;
+
+	/**
+	 * Build a pagoda function for each space the last peg can finish on
+	 * @param layout layout of the board
+	 * @param targets spaces the last peg can finish on
+	 * @return the pagoda functions, or null if a space is farther than MAX_DISTANCE steps from a finishing space
+	 */
+	public static Pagoda create(Layout layout, PositionClass targets) {
+		ArrayList<long[]> weights = new ArrayList<long[]>();
+		for (int t = 0; t < layout.size; t++) {
+			if (!State.bit(targets.targetLow, targets.targetHigh, t)) continue;
+			long[] w = weights(layout, t);
+			// Every finishing space needs a pagoda function, or boards that can only finish on it would be pruned
+			if (w == null) return null;
+			weights.add(w);
+		}
+		return new Pagoda(layout, weights);
+	}
+
+	/**
+	 * Group the weights of each pagoda function into levels
+	 * @param layout layout of the board
+	 * @param weights weight of each space for each finishing space
+	 */
+	Pagoda(Layout layout, ArrayList<long[]> weights) {
+		int n = weights.size();
+		levelLow = new long[n][];
+		levelHigh = new long[n][];
+		levelWeight = new long[n][];
+		threshold = new long[n];
+		for (int f = 0; f < n; f++) {
+			long[] w = weights.get(f);
+			check(layout, w);
+			// Group spaces by weight, largest weight first so the total passes the threshold as early as possible
+			long[] sorted = w.clone();
+			Arrays.sort(sorted);
+			ArrayList<Long> levels = new ArrayList<Long>();
+			for (int i = sorted.length - 1; i >= 0 && sorted[i] > 0; i--) {
+				if (levels.isEmpty() || levels.get(levels.size() - 1) != sorted[i]) levels.add(sorted[i]);
+			}
+			threshold[f] = levels.isEmpty() ? 0 : levels.get(0);
+			levelLow[f] = new long[levels.size()];
+			levelHigh[f] = new long[levels.size()];
+			levelWeight[f] = new long[levels.size()];
+			for (int j = 0; j < levels.size(); j++) {
+				levelWeight[f][j] = levels.get(j);
+				for (int i = 0; i < layout.size; i++) {
+					if (w[i] != levelWeight[f][j]) continue;
+					if (i < 64) levelLow[f][j] |= 1L << i;
+					else levelHigh[f][j] |= 1L << i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Weight each space by the Fibonacci number of its distance from a finishing space counted down from the farthest space
+	 * Distance is the number of single steps in the allowed directions between spaces of the board
+	 * Spaces that can not reach the finishing space have no weight
+	 * @param layout layout of the board
+	 * @param target finishing space
+	 * @return weight of each space, or null if a space is farther than MAX_DISTANCE steps from the finishing space
+	 */
+	static long[] weights(Layout layout, int target) {
+		int[] distance = new int[layout.size];
+		Arrays.fill(distance, -1);
+		distance[target] = 0;
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+		queue.add(target);
+		int farthest = 0;
+		while (!queue.isEmpty()) {
+			int i = queue.poll();
+			for (int d : layout.directions) {
+				// Steps back along a direction lead to the spaces one step away
+				int j = i - layout.offset[d];
+				int row = i / layout.width - Layout.ROW_STEP[d];
+				int column = i % layout.width - Layout.COLUMN_STEP[d];
+				if (row < 0 || row >= layout.height || column < 0 || column >= layout.width || !layout.valid(j) || distance[j] >= 0) continue;
+				distance[j] = distance[i] + 1;
+				farthest = Math.max(farthest, distance[j]);
+				queue.add(j);
+			}
+		}
+		if (farthest > MAX_DISTANCE) return null;
+		long[] fibonacci = new long[farthest + 3];
+		fibonacci[1] = 1;
+		for (int n = 2; n < fibonacci.length; n++) fibonacci[n] = fibonacci[n - 1] + fibonacci[n - 2];
+		long[] w = new long[layout.size];
+		for (int i = 0; i < layout.size; i++) {
+			if (distance[i] >= 0) w[i] = fibonacci[farthest - distance[i] + 2];
+		}
+		return w;
+	}
+
+	/**
+	 * Make sure no move of the board can increase the total weight of a pagoda function
+	 * @param layout layout of the board
+	 * @param w weight of each space
+	 */
+	static void check(Layout layout, long[] w) {
+		for (int move : layout.moveTable) {
+			if (w[Layout.from(move)] + w[Layout.over(move)] < w[Layout.to(move)]) {
+				throw new IllegalStateException("Weights are not a pagoda function for move " + Layout.from(move) + " to " + Layout.to(move));
+			}
+		}
+	}
+
+	@Override
+	public String name() {
+		return "pagoda functions";
+	}
+
+	@Override
+	public boolean prune(State s, int bestPegs) {
+		if (bestPegs > 2) return false;
+		// The board can be kept if the total of any pagoda function reaches the weight of its finishing space
+		for (int f = 0; f < threshold.length; f++) {
+			long total = 0;
+			for (int j = 0; j < levelWeight[f].length && total < threshold[f]; j++) {
+				total += levelWeight[f][j] * (Long.bitCount(s.low & levelLow[f][j]) + Long.bitCount(s.high & levelHigh[f][j]));
+			}
+			if (total >= threshold[f]) return false;
+		}
+		return true;
+	}
+}
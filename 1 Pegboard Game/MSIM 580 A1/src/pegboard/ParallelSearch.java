@@ -0,0 +1,205 @@
+package pegboard;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ParallelSearch class performs a depth-first search of a pegboard on several threads
+ * Each thread searches its own part of the move tree in place, the same way as the single threaded depth-first search
+ * A thread that runs low on queued work splits the unexplored moves nearest the root of its search into new tasks,
+ * which idle threads of the ForkJoinPool steal
+ * All threads share the best path found, the table of repeated boards, the deadline of the search and a stop flag set when a one peg solution is found
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class ParallelSearch {
+
+	/**
+	 * Number of nodes a task searches between adding its counts to the metrics and checking its queue of work
+	 */
+	static final int CHECK_INTERVAL = 1024;
+
+	/**
+	 * Declare variables for the ParallelSearch class
+	 * bestPegs and bestPath hold the best path found by any thread, bestPath is only changed while holding the lock of the search
+	 */
+	TranspositionTable table;
+	Pruning pruning;
+	Metrics metrics;
+	Deadline deadline;
+	volatile boolean stop;
+	volatile int bestPegs;
+	int[] bestPath = new int[0];
+	LongAdder nodes = new LongAdder();
+
+	/**
+	 * Create a parallel search
+	 * @param table boards already reached, shared by all threads
+	 * @param pruning pruners that skip boards which can not lead to a better board than the best found, shared by all threads
+	 * @param metrics progress counters of the search, each thread adds its counts every CHECK_INTERVAL nodes
+	 * @param deadline expires when the maximum search time is reached or the search is cancelled
+	 */
+	public ParallelSearch(TranspositionTable table, Pruning pruning, Metrics metrics, Deadline deadline) {
+		this.table = table;
+		this.pruning = pruning;
+		this.metrics = metrics;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Search for the best path from a state using a pool of threads
+	 * @param start state to search from
+	 * @param threads number of threads to search with
+	 * @return moves of the best path found
+	 */
+	public int[] search(State start, int threads) {
+		bestPegs = start.pegs;
+		nodes.add(start.nodes);
+		if (start.pegs == 1) return bestPath;
+		State board = start.copy();
+		int[] moves = new int[board.layout.maxMoves];
+		int count = board.moves(moves);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new Task(board, new int[0], Arrays.copyOf(moves, count)));
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		return bestPath;
+	}
+
+	/**
+	 * Record a path if it leaves fewer pegs than the best path found so far
+	 * @param pegs number of pegs left by the path
+	 * @param path moves of the path
+	 * @param length number of moves in the path
+	 */
+	synchronized void improve(int pegs, int[] path, int length) {
+		if (pegs >= bestPegs) return;
+		bestPath = Arrays.copyOf(path, length);
+		bestPegs = pegs;
+		metrics.set(Metrics.BEST_PEGS, pegs);
+		if (pegs == 1) stop = true;
+	}
+
+	/**
+	 * Copy the best moves found by any thread into a path
+	 * @param best the best path found so far
+	 */
+	public void setBest(Path best) {
+		best.set(bestPath, bestPath.length);
+		best.nodes = nodes.sum();
+	}
+
+	/**
+	 * The Task class searches the subtrees below a list of moves from a board
+	 */
+	class Task extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Declare variables for the Task class
+		 * board is the position the task starts from, prefix holds the moves that reach it from the start of the search
+		 */
+		State board;
+		int[] prefix;
+		int[] rootMoves;
+
+		/**
+		 * Create a task
+		 * @param board position to search from, the task changes the board in place
+		 * @param prefix moves from the start of the search to the board
+		 * @param rootMoves moves from the board to search below
+		 */
+		Task(State board, int[] prefix, int[] rootMoves) {
+			this.board = board;
+			this.prefix = prefix;
+			this.rootMoves = rootMoves;
+		}
+
+		@Override
+		protected void compute() {
+			ArrayList<Task> forked = new ArrayList<Task>();
+			int base = prefix.length;
+			int size = base + board.pegs + 1;
+			int[][] moves = new int[size][];
+			int[] count = new int[size];
+			int[] next = new int[size];
+			int[] path = Arrays.copyOf(prefix, size);
+			int depth = base;
+			moves[depth] = rootMoves;
+			count[depth] = rootMoves.length;
+			long localNodes = 0;
+			long localExpanded = 0;
+			int untilCheck = CHECK_INTERVAL;
+			while (depth >= base && !stop && !deadline.expired()) {
+				if (--untilCheck == 0) {
+					untilCheck = CHECK_INTERVAL;
+					nodes.add(localNodes);
+					metrics.add(Metrics.NODES, localNodes);
+					metrics.add(Metrics.EXPANDED, localExpanded);
+					metrics.set(Metrics.FRONTIER, getPool().getQueuedTaskCount());
+					localNodes = 0;
+					localExpanded = 0;
+					// Share work when this thread has no queued tasks left for idle threads to steal
+					if (getSurplusQueuedTaskCount() == 0) split(forked, moves, count, next, path, base, depth);
+				}
+				// When all successor states have been searched for a given state take back the last move
+				if (next[depth] == count[depth]) {
+					if (--depth >= base) board.undo(path[depth]);
+					continue;
+				}
+				// Try the next successor state, skipping pruned boards and boards already searched by any thread
+				int move = moves[depth][next[depth]++];
+				board.play(move);
+				if (!table.add(board) || pruning.prune(board, bestPegs)) {
+					board.undo(move);
+					continue;
+				}
+				localNodes ++;
+				path[depth++] = move;
+				if (board.pegs < bestPegs) improve(board.pegs, path, depth);
+				if (moves[depth] == null) moves[depth] = new int[board.layout.maxMoves];
+				count[depth] = board.moves(moves[depth]);
+				next[depth] = 0;
+				localExpanded ++;
+			}
+			nodes.add(localNodes);
+			metrics.add(Metrics.NODES, localNodes);
+			metrics.add(Metrics.EXPANDED, localExpanded);
+			for (Task t : forked) t.join();
+		}
+
+		/**
+		 * Hand the unexplored moves nearest the root of this task to new tasks, one task for each move
+		 * Splitting stops two levels above the current depth so stolen tasks are not too small to be worth scheduling
+		 * @param forked list of tasks forked by this task
+		 * @param moves rows of moves for each depth
+		 * @param count number of moves in each row
+		 * @param next index of the next unexplored move in each row
+		 * @param path moves played to reach the current board
+		 * @param base depth this task started at
+		 * @param depth current depth
+		 */
+		private void split(ArrayList<Task> forked, int[][] moves, int[] count, int[] next, int[] path, int base, int depth) {
+			int d = base;
+			while (d < depth - 2 && next[d] == count[d]) d++;
+			if (d >= depth - 2) return;
+			// Rebuild the board at depth d from the current board
+			State splitBoard = board.copy();
+			for (int i = depth - 1; i >= d; i--) splitBoard.undo(path[i]);
+			int[] splitPrefix = Arrays.copyOf(path, d);
+			while (next[d] < count[d]) {
+				Task t = new Task(splitBoard.copy(), splitPrefix, new int[] {moves[d][next[d]++]});
+				t.fork();
+				forked.add(t);
+			}
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package pegboard;
+
+/**
+ * The Path class holds a sequence of moves from a starting state
+ * Only the packed moves are kept, one int for each move, so a path does not hold on to a State for every board along it
+ * The boards along the path are rebuilt by replaying the moves when they are needed for output
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Path {
+
+	/**
+	 * Declare variables for the Path class
+	 * moves holds the packed moves of the path, a path can be at most one move shorter than the number of pegs of the start
+	 * nodes is the number of nodes explored by the search that found the path
+	 */
+	State start;
+	int[] moves;
+	int length;
+	long nodes;
+
+	/**
+	 * Create an empty path
+	 * @param start state the path begins at
+	 */
+	public Path(State start) {
+		this.start = start;
+		moves = new int[Math.max(1, start.pegs)];
+		nodes = start.nodes;
+	}
+
+	/**
+	 * @return number of pegs remaining at the end of the path
+	 */
+	public int pegs() {
+		return start.pegs - length;
+	}
+
+	/**
+	 * @return number of moves in the path
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @param i index of a move
+	 * @return packed move i of the path
+	 */
+	public int move(int i) {
+		return moves[i];
+	}
+
+	/**
+	 * Replace the moves of the path
+	 * @param path moves played from the start
+	 * @param length number of moves in the path
+	 */
+	public void set(int[] path, int length) {
+		System.arraycopy(path, 0, moves, 0, length);
+		this.length = length;
+	}
+
+	/**
+	 * Replace the moves of the path with the moves that lead from the start to a state through its parents
+	 * @param end last state of the path, its chain of parents must lead back to the start
+	 */
+	public void set(State end) {
+		length = start.pegs - end.pegs;
+		int i = length;
+		for (State s = end; s.parent != null && i > 0; s = s.parent) moves[--i] = move(s.parent, s);
+	}
+
+	/**
+	 * Find the move that turns one board into another
+	 * The peg that lands is the only new peg, and the jumped peg lies halfway between where the peg started and landed
+	 * @param parent board before the move
+	 * @param child board after the move
+	 * @return packed move
+	 */
+	static int move(State parent, State child) {
+		long addedLow = child.low & ~parent.low;
+		long addedHigh = child.high & ~parent.high;
+		int to = addedLow != 0 ? Long.numberOfTrailingZeros(addedLow) : 64 + Long.numberOfTrailingZeros(addedHigh);
+		long removedLow = parent.low & ~child.low;
+		long removedHigh = parent.high & ~child.high;
+		// The two removed pegs are the starting and jumped spaces, the start is the one that is not halfway to the landing space
+		int first = removedLow != 0 ? Long.numberOfTrailingZeros(removedLow) : 64 + Long.numberOfTrailingZeros(removedHigh);
+		int last = removedHigh != 0 ? 127 - Long.numberOfLeadingZeros(removedHigh) : 63 - Long.numberOfLeadingZeros(removedLow);
+		int from = first + to == 2 * last ? first : last;
+		return Layout.move(from, (from + to) / 2, to);
+	}
+
+	/**
+	 * Rebuild a board along the path by replaying moves from the start
+	 * @param b number of moves to replay, 0 returns a copy of the start
+	 * @return board after b moves
+	 */
+	public State board(int b) {
+		State board = start.copy();
+		for (int i = 0; i < b; i++) board.play(moves[i]);
+		return board;
+	}
+}
@@ -0,0 +1,82 @@
+package pegboard;
+
+/**
+ * The PositionClass class finds the spaces where the last peg of a game can finish
+ * Spaces are labeled (a * row + b * column) mod 3, and when every allowed direction changes the label the three spaces of a move
+ * have three different labels, so every move changes the parity of the number of pegs with each label
+ * The parities of the label counts therefore never change, and a single peg can only finish on a space with the parities of the start
+ * Every board of a search shares the parities of the start, so the class is found once for the starting board and not for each board
+ * When no space has the parities of the start the board can not be solved, and once two pegs are reached nothing better is possible
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class PositionClass {
+
+	/**
+	 * Row and column factors of the labels tried, other factors give the same labels in a different order
+	 */
+	static final int[][] LABELS = {{1, 1}, {1, 2}, {1, 0}, {0, 1}};
+
+	/**
+	 * Declare variables for the PositionClass class
+	 * targetLow and targetHigh mark the spaces a single peg can finish on
+	 */
+	long targetLow;
+	long targetHigh;
+
+	/**
+	 * Find the spaces the last peg can finish on
+	 * @param start state the search begins with
+	 */
+	public PositionClass(State start) {
+		Layout l = start.layout;
+		targetLow = l.validLow;
+		targetHigh = l.validHigh;
+		for (int[] label : LABELS) {
+			// The label only gives an invariant if every direction changes it
+			boolean invariant = true;
+			for (int d : l.directions) invariant &= Math.floorMod(label[0] * Layout.ROW_STEP[d] + label[1] * Layout.COLUMN_STEP[d], 3) != 0;
+			if (!invariant) continue;
+			int startParity = parity(start, label);
+			for (int i = 0; i < l.size; i++) {
+				if (!l.valid(i)) continue;
+				int only = (label[0] * (i / l.width) + label[1] * (i % l.width)) % 3;
+				// A single peg with label x gives odd counts for the pairs of labels that include x
+				int parity = (only <= 1 ? 1 : 0) | (only >= 1 ? 2 : 0);
+				if (parity != startParity) {
+					if (i < 64) targetLow &= ~(1L << i);
+					else targetHigh &= ~(1L << i);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parities of the numbers of pegs with labels 0 or 1 and with labels 1 or 2
+	 * @param s state to count
+	 * @param label row and column factors of the label
+	 * @return first parity in bit 0 and second parity in bit 1
+	 */
+	static int parity(State s, int[] label) {
+		int[] count = new int[3];
+		for (int i = 0; i < s.layout.size; i++) {
+			if (s.peg(i)) count[(label[0] * (i / s.width) + label[1] * (i % s.width)) % 3]++;
+		}
+		return (count[0] + count[1]) % 2 | (count[1] + count[2]) % 2 << 1;
+	}
+
+	/**
+	 * @return true if some space can hold the last peg
+	 */
+	public boolean solvable() {
+		return targetLow != 0 || targetHigh != 0;
+	}
+
+	/**
+	 * @return fewest pegs any board of the search can be left with, 1 if some space can hold the last peg and 2 otherwise
+	 */
+	public int fewestPegs() {
+		return solvable() ? 1 : 2;
+	}
+}
@@ -0,0 +1,25 @@
+package pegboard;
+
+/**
+ * The Pruner interface is implemented by tests that prove a board can not lead to a better result than the best board found so far
+ * Searches ask each pruner before a successor state is added to the search, boards a pruner rejects are never expanded
+ * A pruner must never reject a board from which fewer pegs than the best board can be reached
+ *
+ * @author Ben Bissantz
+ *
+ */
+public interface Pruner {
+
+	/**
+	 * @return name of the pruner shown in the results
+	 */
+	String name();
+
+	/**
+	 * Determine if a board can be skipped
+	 * @param s state to test
+	 * @param bestPegs number of pegs on the best board found so far
+	 * @return true if no sequence of moves from s leaves fewer than bestPegs pegs
+	 */
+	boolean prune(State s, int bestPegs);
+}
@@ -0,0 +1,113 @@
+package pegboard;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The Pruning class is the stage every search passes successor states through before adding them to the search
+ * It asks each of its pruners in turn, cheapest first, and counts the boards each pruner rejects
+ * A Pruning with no pruners keeps every board, so searches run the same with pruning turned off
+ * The position class of the starting board gives the fewest pegs the search can reach, once the best board has that many pegs
+ * every board is skipped without asking the pruners, as no board can improve on it
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Pruning {
+
+	/**
+	 * Declare variables for the Pruning class
+	 * pruned counts the boards rejected by each pruner, the counts can be shared by parallel searches
+	 * fewestPegs is the fewest pegs the search can reach, 0 when unknown so every board is passed to the pruners
+	 */
+	Pruner[] pruners;
+	LongAdder[] pruned;
+	int fewestPegs = 0;
+
+	/**
+	 * Create a pruning stage that keeps every board
+	 */
+	public Pruning() {
+		this(new Pruner[0]);
+	}
+
+	/**
+	 * Create a pruning stage from a list of pruners
+	 * @param pruners pruners in the order they are asked
+	 */
+	public Pruning(Pruner... pruners) {
+		this.pruners = pruners;
+		pruned = new LongAdder[pruners.length];
+		for (int p = 0; p < pruners.length; p++) pruned[p] = new LongAdder();
+	}
+
+	/**
+	 * Create the isolated peg and pagoda function pruners for a board, the position class of the board sets the fewest pegs
+	 * @param start state the search begins with, its topology must already be selected
+	 * @return pruning stage for searches of the board
+	 */
+	public static Pruning create(State start) {
+		return create(start, null);
+	}
+
+	/**
+	 * Create the endgame table, isolated peg and pagoda function pruners for a board, the position class of the board sets the fewest pegs
+	 * The pagoda function pruner is left out of boards whose spaces are too far apart for its weights
+	 * @param start state the search begins with, its topology must already be selected
+	 * @param endgame endgame table built for the board, or null to search without one
+	 * @return pruning stage for searches of the board
+	 */
+	public static Pruning create(State start, EndgameTable endgame) {
+		PositionClass targets = new PositionClass(start);
+		ArrayList<Pruner> pruners = new ArrayList<Pruner>();
+		if (endgame != null) pruners.add(endgame);
+		pruners.add(new IsolatedPegs(start.layout, targets));
+		// Boards with spaces too far from a finishing space are searched without pagoda functions
+		Pagoda pagoda = Pagoda.create(start.layout, targets);
+		if (pagoda != null) pruners.add(pagoda);
+		Pruning pruning = new Pruning(pruners.toArray(new Pruner[0]));
+		pruning.fewestPegs = targets.fewestPegs();
+		return pruning;
+	}
+
+	/**
+	 * Create the pruning stage a search of a board asks, the endgame table is consulted whether or not the other pruners are selected
+	 * @param start state the search begins with, its topology must already be selected
+	 * @param endgame endgame table built for the board, or null to search without one
+	 * @param prune true to add the isolated peg and pagoda function pruners and the fewest pegs of the position class
+	 * @return pruning stage for searches of the board
+	 */
+	public static Pruning create(State start, EndgameTable endgame, boolean prune) {
+		if (prune) return create(start, endgame);
+		return endgame == null ? new Pruning() : new Pruning(endgame);
+	}
+
+	/**
+	 * Determine if a board can be skipped because it can not lead to a better board than the best found
+	 * @param s state to test
+	 * @param bestPegs number of pegs on the best board found so far
+	 * @return true if a pruner rejected the board
+	 */
+	public boolean prune(State s, int bestPegs) {
+		// Once the best board has the fewest pegs the start allows no board can improve on it
+		if (bestPegs <= fewestPegs) return true;
+		for (int p = 0; p < pruners.length; p++) {
+			if (pruners[p].prune(s, bestPegs)) {
+				pruned[p].increment();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param name name of a pruner
+	 * @return number of boards the pruner rejected, 0 if the stage has no pruner of that name
+	 */
+	public long count(String name) {
+		for (int p = 0; p < pruners.length; p++) {
+			if (pruners[p].name().equals(name)) return pruned[p].sum();
+		}
+		return 0;
+	}
+}
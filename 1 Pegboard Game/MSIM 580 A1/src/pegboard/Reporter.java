@@ -0,0 +1,93 @@
+package pegboard;
+
+import java.io.PrintStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Reporter class prints the progress of a search at a fixed interval from a background thread
+ * Each line is a sample of the Metrics of the search, either as text or as a line of JSON
+ * Nodes per second is measured over the interval since the previous line
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Reporter implements Runnable {
+
+	/**
+	 * Milliseconds between lines of progress
+	 */
+	static final long INTERVAL = 1000;
+
+	/**
+	 * Declare variables for the Reporter class
+	 * lastNodes and lastTime are the nodes and time of the previous line, only used by the reporting thread
+	 */
+	Metrics metrics;
+	PrintStream output;
+	boolean json;
+	ScheduledExecutorService timer;
+	long lastNodes;
+	long lastTime;
+
+	/**
+	 * Start printing the progress of a search
+	 * @param metrics metrics of the search
+	 * @param output stream to print to
+	 * @param json true to print lines of JSON, false to print text
+	 * @param interval milliseconds between lines
+	 * @return the running reporter
+	 */
+	public static Reporter start(Metrics metrics, PrintStream output, boolean json, long interval) {
+		Reporter reporter = new Reporter();
+		reporter.metrics = metrics;
+		reporter.output = output;
+		reporter.json = json;
+		reporter.lastNodes = metrics.get(Metrics.NODES);
+		reporter.lastTime = metrics.startTime;
+		// A daemon thread never keeps the program running after the search ends
+		reporter.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "pegboard-reporter");
+			t.setDaemon(true);
+			return t;
+		});
+		reporter.timer.scheduleAtFixedRate(reporter, interval, interval, TimeUnit.MILLISECONDS);
+		return reporter;
+	}
+
+	/**
+	 * Print one line of progress
+	 */
+	@Override
+	public void run() {
+		long time = System.currentTimeMillis();
+		long nodes = metrics.get(Metrics.NODES);
+		long rate = (nodes - lastNodes) * 1000 / Math.max(1, time - lastTime);
+		lastNodes = nodes;
+		lastTime = time;
+		if (json) {
+			output.printf("{\"elapsed_ms\":%d,\"best_pegs\":%d,\"nodes\":%d,\"expanded\":%d,\"generated\":%d,\"repeated\":%d,\"pruned\":%d,"
+					+ "\"frontier\":%d,\"nodes_per_second\":%d}\n", time - metrics.startTime, metrics.get(Metrics.BEST_PEGS), nodes,
+					metrics.get(Metrics.EXPANDED), metrics.generated(), metrics.repeated(), metrics.pruned(), metrics.get(Metrics.FRONTIER), rate);
+		}
+		else {
+			output.printf("Best: %d pegs, %d nodes explored, %d expanded, %d generated, %d repeated, %d pruned, %d in frontier, %d nodes per second.\n",
+					metrics.get(Metrics.BEST_PEGS), nodes, metrics.get(Metrics.EXPANDED), metrics.generated(), metrics.repeated(),
+					metrics.pruned(), metrics.get(Metrics.FRONTIER), rate);
+		}
+		output.flush();
+	}
+
+	/**
+	 * Stop printing, waiting for a line being printed to finish
+	 */
+	public void stop() {
+		timer.shutdownNow();
+		try {
+			timer.awaitTermination(INTERVAL, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package pegboard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Scanner;
+
+/**
+ * The SolutionFile class reads and writes a path of moves in a compact binary form
+ * The file starts with a header holding the starting board and the moves allowed, followed by two bytes for each move,
+ * the space the peg jumps from and the space it lands on, the jumped space lies halfway between them
+ * A file is read one move at a time, so a path can be checked without holding more than the current board in memory
+ * Layout of the file, all numbers big endian:
+ * int MAGIC, byte VERSION, byte height, byte width, byte topology, long valid spaces low, long valid spaces high,
+ * long pegs low, long pegs high, long nodes explored, short number of moves, then byte from and byte to for each move
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class SolutionFile implements Closeable {
+
+	/**
+	 * First four bytes of a solution file, the letters PEGS
+	 */
+	static final int MAGIC = 0x50454753;
+
+	/**
+	 * Version of the file layout
+	 */
+	static final byte VERSION = 1;
+
+	/**
+	 * Declare variables for the SolutionFile class
+	 * start is the starting board with its topology selected, length is the number of moves and read the number of moves read so far
+	 */
+	File file;
+	DataInputStream in;
+	State start;
+	long nodes;
+	int length;
+	int read;
+
+	/**
+	 * Open a solution file and read its header
+	 * @param file file to read
+	 * @throws IOException if the file can not be read or is not a solution file
+	 */
+	public SolutionFile(File file) throws IOException {
+		this.file = file;
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		try {
+			if (in.readInt() != MAGIC) throw new IOException(file + " is not a pegboard solution file");
+			byte version = in.readByte();
+			if (version != VERSION) throw new IOException(file + " has unknown version " + version);
+			byte height = in.readByte();
+			byte width = in.readByte();
+			int topology = in.readByte();
+			if (height < 1 || width < 1 || height * width > Layout.MAX_SPACES || topology < 0 || topology >= Topology.values().length) {
+				throw new IOException(file + " has an invalid header");
+			}
+			long validLow = in.readLong();
+			long validHigh = in.readLong();
+			long pegLow = in.readLong();
+			long pegHigh = in.readLong();
+			nodes = in.readLong();
+			length = in.readUnsignedShort();
+			// Rebuild the rows of the input file so the board is created the same way as a board read from an input file
+			StringBuilder rows = new StringBuilder();
+			for (int i = 0; i < height * width; i++) {
+				rows.append(State.bit(pegLow, pegHigh, i) ? '1' : State.bit(validLow, validHigh, i) ? '0' : '8');
+				if (i % width == width - 1) rows.append('\n');
+			}
+			try {
+				start = GameInputOutput.readBoard(new Scanner(rows.toString()));
+			} catch (IllegalArgumentException e) {
+				throw new IOException(file + " has an invalid board, " + e.getMessage());
+			}
+			start.layout.setTopology(Topology.values()[topology]);
+			if (length >= Math.max(1, start.pegs)) throw new IOException(file + " has more moves than the board has pegs");
+		}
+		catch (EOFException e) {
+			in.close();
+			throw new IOException(file + " ends before its header");
+		}
+		catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Read the next move of the path
+	 * @return packed move, or -1 once every move has been read
+	 * @throws IOException if the file ends early
+	 */
+	public int next() throws IOException {
+		if (read == length) return -1;
+		read++;
+		int from, to;
+		try {
+			from = in.readUnsignedByte();
+			to = in.readUnsignedByte();
+		} catch (EOFException e) {
+			throw new IOException(file + " ends before move " + read);
+		}
+		return Layout.move(from, (from + to) / 2, to);
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+	/**
+	 * Write a path to a solution file
+	 * @param path path to write, its starting board carries the topology of the search
+	 * @param file file to create
+	 * @throws IOException if the file can not be written
+	 */
+	public static void write(Path path, File file) throws IOException {
+		State start = path.start;
+		Layout layout = start.layout;
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeByte(layout.height);
+			out.writeByte(layout.width);
+			out.writeByte(layout.topology.ordinal());
+			out.writeLong(layout.validLow);
+			out.writeLong(layout.validHigh);
+			out.writeLong(start.low);
+			out.writeLong(start.high);
+			out.writeLong(path.nodes);
+			out.writeShort(path.length());
+			for (int i = 0; i < path.length(); i++) {
+				out.writeByte(Layout.from(path.move(i)));
+				out.writeByte(Layout.to(path.move(i)));
+			}
+		}
+	}
+}
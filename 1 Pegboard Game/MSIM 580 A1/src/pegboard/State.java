@@ -2,10 +2,11 @@ package pegboard;
 
 /**
  * The State class represents the current state of a pegboard
- * The pegs are represented by an array of bytes
+ * The pegs are represented by the bits of two longs, one bit for each space of the pegboard's Layout
  * The State class has methods to validate peg movements and to move pegs right, left, up and down
  * Additionally the State class has methods to move pegs diagonally
  * Peg movements should only be called after validation to prevent out of bounds movements
+ * All legal moves of a State can be listed without creating child states and played in place for fast searches
  * 
  * @author Ben Bissantz
  * 
@@ -15,12 +16,17 @@ public class State {
 	/**
 	 * Declare variables for the State class
 	 * byte is used to conserve memory and improve performance
+	 * low holds the pegs in spaces 0 to 63 and high holds the pegs in spaces 64 to 127
+	 * heuristic is the heuristic value of the state, it is updated with the change in value of each move played
 	 */
 	byte height;
 	byte width;
 	byte pegs;
-	byte[] board;
+	long low;
+	long high;
+	Layout layout;
 	long nodes;
+	int heuristic;
 	State parent;
 
 	/**
@@ -35,14 +41,176 @@ public class State {
 		child.width = width;
 		child.pegs = pegs;
 		child.nodes = nodes;
-		child.board = new byte[height * width];
-		for (int i = 0; i < height * width; i++) {
-			child.board[i] = this.board[i];
-		}
+		child.heuristic = heuristic;
+		child.low = low;
+		child.high = high;
+		child.layout = layout;
 		child.parent = this;
 		child.pegs--;
 		return child;
 	}
+
+	/**
+	 * Create a copy of the current State
+	 * Searches play and take back moves on the copy without changing the original state
+	 * @return copy of the state with the same parent
+	 */
+	public State copy() {
+		State copy = createChild();
+		copy.pegs++;
+		copy.parent = parent;
+		return copy;
+	}
+
+	/**
+	 * Returns true if bit i of a 128 bit set is on
+	 * Shifts only use the lowest six bits of i, so one shift works for both longs
+	 * @param low bits 0 to 63
+	 * @param high bits 64 to 127
+	 * @param i index of the bit
+	 * @return true if bit i is on
+	 */
+	static boolean bit(long low, long high, int i) {
+		return ((i < 64 ? low : high) >>> i & 1L) != 0;
+	}
+
+	/**
+	 * Returns true if there is a peg at index i
+	 * @param i index of the space
+	 * @return true if the space holds a peg
+	 */
+	public boolean peg(int i) {
+		return bit(low, high, i);
+	}
+
+	/**
+	 * Returns the value of space i using the input file alphabet
+	 * @param i index of the space
+	 * @return 1 for a peg, 0 for an empty space and 8 for a space that is not part of the board
+	 */
+	public byte get(int i) {
+		return (byte) (peg(i) ? 1 : layout.valid(i) ? 0 : 8);
+	}
+
+	/**
+	 * Place a peg at index i
+	 * @param i index of the space
+	 */
+	public void set(int i) {
+		if (i < 64) low |= 1L << i;
+		else high |= 1L << i;
+	}
+
+	/**
+	 * Determine if it is possible to move a peg at index i in a direction
+	 * The peg must be on the board two spaces from the edge, jump a peg and land in an empty space
+	 * @param i index of peg to move
+	 * @param direction one of the Layout direction constants
+	 * @return true if move is possible
+	 */
+	public boolean look(int i, int direction) {
+		int k = layout.offset[direction];
+		return bit(layout.sourceLow[direction], layout.sourceHigh[direction], i) && peg(i) && peg(i + k)
+				&& !peg(i + 2 * k) && layout.valid(i + 2 * k);
+	}
+
+	/**
+	 * Move a peg at index i in a direction into an empty space
+	 * Calls create child to generate a new state and updates positions
+	 * @param i index of peg to move
+	 * @param direction one of the Layout direction constants
+	 * @return new state with updated positions
+	 */
+	public State move(int i, int direction) {
+		int k = layout.offset[direction];
+		return createChild(Layout.move(i, i + k, i + 2 * k));
+	}
+
+	/**
+	 * Create a child to the current State with a packed move applied
+	 * @param move packed move from the moves method
+	 * @return new state with updated positions
+	 */
+	public State createChild(int move) {
+		State child = createChild();
+		child.toggle(move);
+		child.heuristic += layout.delta(move);
+		return child;
+	}
+
+	/**
+	 * Apply a packed move to this state in place
+	 * @param move packed move from the moves method
+	 */
+	public void play(int move) {
+		toggle(move);
+		pegs--;
+		heuristic += layout.delta(move);
+	}
+
+	/**
+	 * Take back a packed move previously applied with play
+	 * @param move packed move passed to play
+	 */
+	public void undo(int move) {
+		toggle(move);
+		pegs++;
+		heuristic -= layout.delta(move);
+	}
+
+	/**
+	 * Flip the three spaces of a move, the jumping and jumped pegs are removed and the landing space is filled
+	 * @param move packed move
+	 */
+	private void toggle(int move) {
+		int from = Layout.from(move);
+		int over = Layout.over(move);
+		int to = Layout.to(move);
+		low ^= (from < 64 ? 1L << from : 0) | (over < 64 ? 1L << over : 0) | (to < 64 ? 1L << to : 0);
+		high ^= (from >= 64 ? 1L << from : 0) | (over >= 64 ? 1L << over : 0) | (to >= 64 ? 1L << to : 0);
+	}
+
+	/**
+	 * List every legal move of this state without creating any objects
+	 * The pegs that can move in some direction are found with shifts of the whole board at once
+	 * Moves are listed by peg index and then by direction, the order successor states have always been generated in
+	 * Only the moves of movable pegs are read from the table of moves of the Layout
+	 * @param moves buffer with room for at least layout.maxMoves moves
+	 * @return number of moves written to the buffer
+	 */
+	public int moves(int[] moves) {
+		Layout l = layout;
+		int[] directions = l.directions;
+		long emptyLow = l.validLow & ~low;
+		long emptyHigh = l.validHigh & ~high;
+		// A peg can move if the next space holds a peg and the space after it is empty
+		long movableLow = 0;
+		long movableHigh = 0;
+		for (int d : directions) {
+			int k = l.offset[d];
+			movableLow |= low & Layout.shiftLow(low, high, k) & Layout.shiftLow(emptyLow, emptyHigh, 2 * k) & l.sourceLow[d];
+			movableHigh |= high & Layout.shiftHigh(low, high, k) & Layout.shiftHigh(emptyLow, emptyHigh, 2 * k) & l.sourceHigh[d];
+		}
+		// Visit movable pegs in index order and list the moves they can make
+		int count = 0;
+		while (movableLow != 0 || movableHigh != 0) {
+			int i;
+			if (movableLow != 0) {
+				i = Long.numberOfTrailingZeros(movableLow);
+				movableLow &= movableLow - 1;
+			}
+			else {
+				i = 64 + Long.numberOfTrailingZeros(movableHigh);
+				movableHigh &= movableHigh - 1;
+			}
+			// Walk the table of moves from space i
+			for (int j = l.moveStart[i], end = l.moveStart[i + 1]; j < end; j++) {
+				int move = l.moveTable[j];
+				if (peg(Layout.over(move)) && bit(emptyLow, emptyHigh, Layout.to(move))) moves[count++] = move;
+			}
+		}
+		return count;
+	}
 	
 	/**
 	 * Determine if it is possible to move a peg at index i to the right
@@ -50,7 +218,7 @@ public class State {
 	 * @return true if move is possible
 	 */
 	public boolean lookRight(int i) {
-		return (i % width <= width - 3 && board[i] == 1 && board[i + 1] == 1 && board[i + 2] == 0) ? true : false;
+		return look(i, Layout.RIGHT);
 	}
 	
 	/**
@@ -60,11 +228,7 @@ public class State {
 	 * @return new state with updated positions
 	 */
 	public State moveRight(int i) {
-		State child = createChild();
-		child.board[i] = 0;
-		child.board[i+1] = 0;
-		child.board[i+2] = 1;
-		return child;
+		return move(i, Layout.RIGHT);
 	}
 
 	/**
@@ -73,7 +237,7 @@ public class State {
 	 * @return true if move is possible
 	 */
 	public boolean lookLeft(int i) {
-		return (i % width >= 2 && board[i] == 1 && board[i - 1] == 1 && board[i - 2] == 0) ? true : false;
+		return look(i, Layout.LEFT);
 	}
 	
 	/**
@@ -83,11 +247,7 @@ public class State {
 	 * @return new state with updated positions
 	 */
 	public State moveLeft(int i) {
-		State child = createChild();
-		child.board[i] = 0;
-		child.board[i-1] = 0;
-		child.board[i-2] = 1;
-		return child;
+		return move(i, Layout.LEFT);
 	}
 
 	/**
@@ -96,7 +256,7 @@ public class State {
 	 * @return true if move is possible
 	 */
 	public boolean lookUp(int i) {
-		return (i / width >= 2 && board[i] == 1 && board[i - width] == 1 && board[i - 2 * width] == 0) ? true : false;
+		return look(i, Layout.UP);
 	}
 	
 	/**
@@ -106,11 +266,7 @@ public class State {
 	 * @return new state with updated positions
 	 */
 	public State moveUp(int i) {
-		State child = createChild();
-		child.board[i] = 0;
-		child.board[i-width] = 0;
-		child.board[i-2*width] = 1;
-		return child;
+		return move(i, Layout.UP);
 	}
 
 	/**
@@ -119,7 +275,7 @@ public class State {
 	 * @return true if move is possible
 	 */
 	public boolean lookDown(int i) {
-		return (i / width <= height - 3 && board[i] == 1 && board[i + width] == 1 && board[i + 2 * width] == 0) ? true : false;
+		return look(i, Layout.DOWN);
 	}
 	
 	/**
@@ -129,11 +285,7 @@ public class State {
 	 * @return new state with updated positions
 	 */
 	public State moveDown(int i) {
-		State child = createChild();
-		child.board[i] = 0;
-		child.board[i+width] = 0;
-		child.board[i+2*width] = 1;
-		return child;
+		return move(i, Layout.DOWN);
 	}
 	
 	/**
@@ -142,7 +294,7 @@ public class State {
 	 * @return true if move is possible
 	 */
 	public boolean lookUpRight(int i) {
-		return (i / width >= 2 && i % width <= width - 3 && board[i] == 1 && board[i - width + 1] == 1 && board[i - 2*width + 2] == 0) ? true : false;
+		return look(i, Layout.UP_RIGHT);
 	}
 	
 	/**
@@ -152,11 +304,7 @@ public class State {
 	 * @return new state with updated positions
 	 */
 	public State moveUpRight(int i) {
-		State child = createChild();
-		child.board[i] = 0;
-		child.board[i-width+1] = 0;
-		child.board[i-2*width+2] = 1;
-		return child;
+		return move(i, Layout.UP_RIGHT);
 	}
 	
 	/**
@@ -165,7 +313,7 @@ public class State {
 	 * @return true if move is possible
 	 */
 	public boolean lookUpLeft(int i) {
-		return (i / width >= 2 && i % i % width >= 2 && board[i] == 1 && board[i - width - 1] == 1 && board[i - 2*width - 2] == 0) ? true : false;
+		return look(i, Layout.UP_LEFT);
 	}
 	
 	/**
@@ -175,11 +323,7 @@ public class State {
 	 * @return new state with updated positions
 	 */
 	public State moveUpLeft(int i) {
-		State child = createChild();
-		child.board[i] = 0;
-		child.board[i-width-1] = 0;
-		child.board[i-2*width-2] = 1;
-		return child;
+		return move(i, Layout.UP_LEFT);
 	}
 	
 	/**
@@ -188,7 +332,7 @@ public class State {
 	 * @return true if move is possible
 	 */
 	public boolean lookDownRight(int i) {
-		return (i / width <= height - 3 && i % width <= width - 3 && board[i] == 1 && board[i + width + 1] == 1 && board[i + 2*width + 2] == 0) ? true : false;
+		return look(i, Layout.DOWN_RIGHT);
 	}
 	
 	/**
@@ -198,11 +342,7 @@ public class State {
 	 * @return new state with updated positions
 	 */
 	public State moveDownRight(int i) {
-		State child = createChild();
-		child.board[i] = 0;
-		child.board[i+width+1] = 0;
-		child.board[i+2*width+2] = 1;
-		return child;
+		return move(i, Layout.DOWN_RIGHT);
 	}
 	
 	/**
@@ -211,7 +351,7 @@ public class State {
 	 * @return true if move is possible
 	 */
 	public boolean lookDownLeft(int i) {
-		return (i / width <= height - 3 && i % width >= 2 && board[i] == 1 && board[i + width - 1] == 1 && board[i + 2*width - 2] == 0) ? true : false;
+		return look(i, Layout.DOWN_LEFT);
 	}
 	
 	/**
@@ -221,10 +361,6 @@ public class State {
 	 * @return new state with updated positions
 	 */
 	public State moveDownLeft(int i) {
-		State child = createChild();
-		child.board[i] = 0;
-		child.board[i+width-1] = 0;
-		child.board[i+2*width-2] = 1;
-		return child;
+		return move(i, Layout.DOWN_LEFT);
 	}
 }
\ No newline at end of file
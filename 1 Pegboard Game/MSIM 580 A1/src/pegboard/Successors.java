@@ -0,0 +1,73 @@
+package pegboard;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The Successors class generates the successor states of a State one at a time
+ * The legal moves are listed once when the Successors are created and a child State is only created when it is requested
+ * Successors are also Iterable so they can be used directly in for each loops
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Successors implements Iterator<State>, Iterable<State> {
+
+	/**
+	 * Declare variables for the Successors class
+	 * moves holds the packed moves of the parent state in the order they are returned
+	 */
+	State parent;
+	int[] moves;
+	int count;
+	int next;
+
+	/**
+	 * List the moves of a state without creating any child states
+	 * @param parent state to generate successor states of
+	 */
+	public Successors(State parent) {
+		this.parent = parent;
+		moves = new int[parent.layout.maxMoves];
+		count = parent.moves(moves);
+	}
+
+	/**
+	 * @return total number of successor states
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return true if another successor state remains
+	 */
+	@Override
+	public boolean hasNext() {
+		return next < count;
+	}
+
+	/**
+	 * Create the next successor state
+	 * @return child of the parent state with the next move applied
+	 */
+	@Override
+	public State next() {
+		return parent.createChild(nextMove());
+	}
+
+	/**
+	 * Skip creating the next successor state and return its move instead
+	 * Used by searches that play moves in place
+	 * @return packed move of the next successor state
+	 */
+	public int nextMove() {
+		if (next >= count) throw new NoSuchElementException();
+		return moves[next++];
+	}
+
+	@Override
+	public Iterator<State> iterator() {
+		return this;
+	}
+}
@@ -0,0 +1,44 @@
+package pegboard;
+
+/**
+ * The Topology enum lists the sets of directions pegs may jump in
+ * Orthogonal boards allow jumps along rows and columns, diagonal boards also allow jumps along both diagonals
+ * Triangular boards such as the classic 15 hole game are entered with each row starting in the first column,
+ * so the six neighbors of a space are left, right, up, down, up and left, and down and right
+ *
+ * @author Ben Bissantz
+ *
+ */
+public enum Topology {
+
+	ORTHOGONAL(Layout.RIGHT, Layout.DOWN, Layout.LEFT, Layout.UP),
+	DIAGONAL(Layout.RIGHT, Layout.DOWN, Layout.LEFT, Layout.UP,
+			Layout.UP_LEFT, Layout.DOWN_RIGHT, Layout.UP_RIGHT, Layout.DOWN_LEFT),
+	HEX(Layout.RIGHT, Layout.DOWN, Layout.LEFT, Layout.UP, Layout.UP_LEFT, Layout.DOWN_RIGHT);
+
+	/**
+	 * Declare variables for the Topology enum
+	 * directions are the Layout direction constants in the order moves are generated for each peg
+	 */
+	final int[] directions;
+
+	/**
+	 * Create a topology
+	 * @param directions direction constants in the order moves are generated
+	 */
+	Topology(int... directions) {
+		this.directions = directions;
+	}
+
+	/**
+	 * Find a topology from its name or its number at the prompt
+	 * @param name name of the topology, ignoring case, or a number from 1 to 3
+	 * @return topology
+	 */
+	public static Topology parse(String name) {
+		for (Topology t : values()) {
+			if (t.name().equalsIgnoreCase(name) || String.valueOf(t.ordinal() + 1).equals(name)) return t;
+		}
+		throw new IllegalArgumentException("Unknown topology " + name);
+	}
+}
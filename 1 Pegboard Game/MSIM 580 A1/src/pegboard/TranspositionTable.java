@@ -0,0 +1,136 @@
+package pegboard;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The TranspositionTable class remembers the boards a search has already reached
+ * Peg solitaire reaches the same board through many different orders of moves, and rotated or mirrored boards have the same solutions
+ * Boards are stored as the smallest of their symmetric bitboards so every symmetric copy is recognized as a repeat
+ * The table has a fixed memory cap, when a bucket is full an older board is evicted and may be searched again later
+ * The table can be shared by parallel searches without locking, each slot holds a check word so a slot read while
+ * another thread is writing it is never mistaken for a stored board
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class TranspositionTable {
+
+	/**
+	 * Number of slots searched for a board before one is evicted
+	 */
+	static final int BUCKET = 4;
+
+	/**
+	 * Longs in each slot, the low and high long of the canonical board followed by the check word
+	 */
+	static final int SLOT = 3;
+
+	/**
+	 * Slots are read and written with opaque access so a long is never split between two writes
+	 */
+	static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+
+	/**
+	 * Buffer receiving the canonical board, one for each thread so adding a board allocates nothing
+	 */
+	static final ThreadLocal<long[]> KEY = ThreadLocal.withInitial(() -> new long[2]);
+
+	/**
+	 * Declare variables for the TranspositionTable class
+	 * keys holds the slots of the table, a slot of zeros is empty
+	 * stored, repeated and evicted count boards added, repeated boards found and boards replaced
+	 */
+	long[] keys;
+	int mask;
+	LongAdder stored = new LongAdder();
+	LongAdder repeated = new LongAdder();
+	LongAdder evicted = new LongAdder();
+
+	/**
+	 * Create a table using at most the given amount of memory
+	 * @param megabytes memory cap for the table, 0 disables the table so every board is searched
+	 */
+	public TranspositionTable(int megabytes) {
+		long slots = Long.highestOneBit((long) megabytes * 1024 * 1024 / (8 * SLOT));
+		slots = Math.min(slots, 1 << 29);
+		if (slots >= BUCKET) {
+			keys = new long[(int) slots * SLOT];
+			mask = (int) slots - 1;
+		}
+	}
+
+	/**
+	 * Add the board of a state to the table
+	 * @param s state to add
+	 * @return true if the board or a symmetric copy of it has not been seen before
+	 */
+	public boolean add(State s) {
+		if (keys == null) return true;
+		// Find the canonical board, the smallest of the symmetric copies of the board
+		long[] key = KEY.get();
+		s.layout.canonical(s.low, s.high, key);
+		long low = key[0];
+		long high = key[1];
+		// Search the bucket for the board or an empty slot
+		long check = check(low, high);
+		int hash = (int) check;
+		int bucket = hash & mask & -BUCKET;
+		for (int i = bucket * SLOT; i < (bucket + BUCKET) * SLOT; i += SLOT) {
+			long slotLow = (long) KEYS.getOpaque(keys, i);
+			long slotHigh = (long) KEYS.getOpaque(keys, i + 1);
+			long slotCheck = (long) KEYS.getOpaque(keys, i + 2);
+			if (slotLow == low && slotHigh == high && slotCheck == check) {
+				repeated.increment();
+				return false;
+			}
+			if (slotLow == 0 && slotHigh == 0 && slotCheck == 0) {
+				store(i, low, high, check);
+				stored.increment();
+				return true;
+			}
+		}
+		// The bucket is full, replace one of its boards
+		store((bucket + (hash >>> 30)) * SLOT, low, high, check);
+		evicted.increment();
+		return true;
+	}
+
+	/**
+	 * Remove every board from the table, the counts of stored, repeated and evicted boards are kept
+	 * Must not be called while another thread is using the table
+	 */
+	public void clear() {
+		if (keys != null) Arrays.fill(keys, 0);
+	}
+
+	/**
+	 * Write a board into a slot
+	 * @param i index of the first long of the slot
+	 * @param low bits 0 to 63 of the board
+	 * @param high bits 64 to 127 of the board
+	 * @param check check word of the board
+	 */
+	private void store(int i, long low, long high, long check) {
+		KEYS.setOpaque(keys, i, low);
+		KEYS.setOpaque(keys, i + 1, high);
+		KEYS.setOpaque(keys, i + 2, check);
+	}
+
+	/**
+	 * Mix the bits of a board into a check word, the lower bits of the check word are used as the hash code
+	 * The check word of a board is never zero so empty slots are never mistaken for a board
+	 * @param low bits 0 to 63 of the board
+	 * @param high bits 64 to 127 of the board
+	 * @return check word of the board
+	 */
+	static long check(long low, long high) {
+		long h = low * 0x9E3779B97F4A7C15L ^ high * 0xC2B2AE3D27D4EB4FL;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		return h == 0 ? 1 : h;
+	}
+}
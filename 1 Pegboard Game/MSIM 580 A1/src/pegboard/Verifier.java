@@ -0,0 +1,191 @@
+package pegboard;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Scanner;
+
+/**
+ * The Verifier class checks that a stored path is a legal game of pegboard
+ * Each move is replayed against the starting board with the same jump rules as State.look, so the peg must be on the board two
+ * spaces from the edge in an allowed direction, jump a peg and land in an empty space of the board
+ * Solution files are checked one move at a time as they are read, the boards along the path are only printed when asked for
+ * Text results written by GameInputOutput can be imported into solution files, the moves are found from each pair of boards
+ * Usage: java pegboard/Verifier file.sol [--print]
+ *        java pegboard/Verifier --import results.txt file.sol [--topology orthogonal|diagonal|hex]
+ *
+ * @author Ben Bissantz
+ *
+ */
+public class Verifier {
+
+	static final String USAGE = "Usage: java pegboard/Verifier file.sol [--print]\n"
+			+ "       java pegboard/Verifier --import results.txt file.sol [--topology orthogonal|diagonal|hex]";
+
+	/**
+	 * Verify a solution file or import a text result
+	 * @param args command line arguments
+	 */
+	public static void main(String[] args) {
+		boolean importing = args.length >= 3 && args[0].equals("--import");
+		Topology topology = null;
+		try {
+			if (importing && args.length == 5 && args[3].equals("--topology")) topology = Topology.parse(args[4]);
+			else if (importing ? args.length != 3 : args.length != 1 && !(args.length == 2 && args[1].equals("--print"))) {
+				throw new IllegalArgumentException("Unknown arguments");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+		try {
+			long startTime = System.nanoTime();
+			if (importing) {
+				Path path = importResults(new File(args[1]), topology);
+				SolutionFile.write(path, new File(args[2]));
+				System.out.printf("Imported %d moves with %s moves, %d pegs remain\n", path.length(), path.start.layout.topology, path.pegs());
+			}
+			else {
+				Path path = verify(new File(args[0]));
+				if (args.length == 2) {
+					System.out.printf("%d Pegs Remain\n", path.pegs());
+					System.out.printf("Total nodes explored: %d\n", path.nodes);
+					GameInputOutput.printBoards(System.out, path);
+				}
+				System.out.printf("Verified %d moves, %d pegs remain\n", path.length(), path.pegs());
+			}
+			System.out.printf("Finished in %.3f ms\n", (System.nanoTime() - startTime) / 1e6);
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Replay every move of a solution file, stopping at the first illegal move
+	 * @param file solution file to check
+	 * @return the verified path
+	 * @throws IOException if the file can not be read
+	 * @throws IllegalArgumentException if a move is not legal
+	 */
+	public static Path verify(File file) throws IOException {
+		try (SolutionFile solution = new SolutionFile(file)) {
+			State board = solution.start.copy();
+			Path path = new Path(solution.start);
+			path.nodes = solution.nodes;
+			int[] moves = new int[solution.length];
+			for (int move = solution.next(); move >= 0; move = solution.next()) {
+				check(board, move, solution.read);
+				board.play(move);
+				moves[solution.read - 1] = move;
+			}
+			path.set(moves, moves.length);
+			return path;
+		}
+	}
+
+	/**
+	 * Make sure a move is a legal jump on a board
+	 * @param board board before the move
+	 * @param move packed move
+	 * @param step number of the move along the path, used in the error message
+	 * @throws IllegalArgumentException if the move is not legal
+	 */
+	static void check(State board, int move, int step) {
+		int from = Layout.from(move);
+		int to = Layout.to(move);
+		Layout layout = board.layout;
+		if (from < layout.size && to < layout.size) {
+			for (int d : layout.directions) {
+				if (to - from == 2 * layout.offset[d] && board.look(from, d)) return;
+			}
+		}
+		throw new IllegalArgumentException("Move " + step + " from row " + (from / layout.width + 1) + " column " + (from % layout.width + 1)
+				+ " to row " + (to / layout.width + 1) + " column " + (to % layout.width + 1) + " is not a legal " + layout.topology + " jump");
+	}
+
+	/**
+	 * Read the boards of a text result and find the move between each pair of boards
+	 * When no topology is given the narrowest topology that makes every move legal is chosen, orthogonal, then hex, then diagonal
+	 * @param file text result written by GameInputOutput
+	 * @param topology moves allowed, or null to choose from the moves of the result
+	 * @return path of the result, its starting board carries the topology
+	 * @throws FileNotFoundException if the file can not be read
+	 * @throws IllegalArgumentException if the result is not a sequence of legal moves
+	 */
+	public static Path importResults(File file, Topology topology) throws FileNotFoundException {
+		ArrayList<String> boards = new ArrayList<String>();
+		ArrayList<Integer> lines = new ArrayList<Integer>();
+		long nodes = 0;
+		int pegs = -1;
+		try (Scanner input = new Scanner(file)) {
+			StringBuilder rows = null;
+			for (int number = 1; input.hasNextLine(); number++) {
+				String line = input.nextLine().trim();
+				if (line.startsWith("Board ")) {
+					if (rows != null) boards.add(rows.toString());
+					rows = new StringBuilder();
+					lines.add(number);
+				}
+				else if (rows != null && !line.isEmpty()) rows.append(line).append('\n');
+				else if (line.startsWith("Total nodes explored: ")) nodes = Long.parseLong(line.substring(22));
+				else if (line.endsWith(" Pegs Remain")) pegs = Integer.parseInt(line.substring(0, line.indexOf(' ')));
+			}
+			if (rows != null) boards.add(rows.toString());
+		}
+		if (boards.isEmpty()) throw new IllegalArgumentException(file + " has no boards");
+		State start;
+		try {
+			start = GameInputOutput.readBoard(new Scanner(boards.get(0)));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Board 0 of " + file + " is invalid, " + e.getMessage());
+		}
+		// Find the move between each pair of boards from the pegs that changed
+		int[] moves = new int[boards.size() - 1];
+		State board = start.copy();
+		for (int b = 1; b < boards.size(); b++) {
+			String spaces = boards.get(b).replace("\n", "");
+			if (spaces.length() != start.layout.size) throw new IllegalArgumentException("Board " + b + " does not have the spaces of board 0");
+			State next = start.copy();
+			next.low = 0;
+			next.high = 0;
+			for (int i = 0; i < spaces.length(); i++) {
+				if ((spaces.charAt(i) == '8') == start.layout.valid(i)) throw new IllegalArgumentException("Board " + b + " does not have the spaces of board 0");
+				if (spaces.charAt(i) == '1') next.set(i);
+			}
+			int removed = Long.bitCount(board.low & ~next.low) + Long.bitCount(board.high & ~next.high);
+			int added = Long.bitCount(next.low & ~board.low) + Long.bitCount(next.high & ~board.high);
+			if (removed != 2 || added != 1) throw new IllegalArgumentException("Board " + b + " is not one move from board " + (b - 1));
+			moves[b - 1] = Path.move(board, next);
+			board.play(moves[b - 1]);
+			// The pegs that changed may not form a jump, the board left by the move found must be the board of the file
+			if (board.low != next.low || board.high != next.high) {
+				throw new IllegalArgumentException("Board " + b + " at line " + lines.get(b) + " of " + file + " is not one jump from board " + (b - 1));
+			}
+		}
+		if (pegs >= 0 && pegs != board.pegs) throw new IllegalArgumentException(file + " reports " + pegs + " pegs but its last board has " + board.pegs);
+		// Replay the moves with each allowed topology
+		Topology[] order = topology != null ? new Topology[] {topology} : new Topology[] {Topology.ORTHOGONAL, Topology.HEX, Topology.DIAGONAL};
+		IllegalArgumentException failure = null;
+		for (Topology t : order) {
+			start.layout.setTopology(t);
+			board = start.copy();
+			try {
+				for (int i = 0; i < moves.length; i++) {
+					check(board, moves[i], i + 1);
+					board.play(moves[i]);
+				}
+			} catch (IllegalArgumentException e) {
+				if (failure == null) failure = e;
+				continue;
+			}
+			Path path = new Path(start);
+			path.set(moves, moves.length);
+			path.nodes = nodes;
+			return path;
+		}
+		throw failure;
+	}
+}
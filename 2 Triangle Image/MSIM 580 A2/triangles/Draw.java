@@ -3,20 +3,59 @@ package triangles;
 import java.io.File;
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
+import java.util.Random;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 import java.lang.Math;
 
 /**
  * This program generates an image from triangles using a genetic algorithm
  * The user is prompted for several options including an input image, number of triangles, output files, and execution time
+ * Optional arguments set the number of threads used to score images and the seed of the random numbers
+ * Example: java triangles.Draw --threads 4 --seed 42
+ * The same seed produces the same images whatever the number of threads
  * @author Ben Bissantz
  *
  */
 public class Draw {
 
+	static final String USAGE = "Usage: java triangles.Draw [--threads count] [--seed number]";
+
 	public static void main(String[] args) {
 
+		/**
+		 * Read the optional arguments, by default every processor is used and the seed is random
+		 */
+		int threads = Runtime.getRuntime().availableProcessors();
+		long seed = new Random().nextLong();
+		try {
+			for (int a = 0; a < args.length; a += 2) {
+				if (a + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + args[a]);
+				switch (args[a]) {
+					case "--threads":
+						threads = Integer.parseInt(args[a + 1]);
+						if (threads < 1) throw new IllegalArgumentException("At least 1 thread is needed");
+						break;
+					case "--seed":
+						seed = Long.parseLong(args[a + 1]);
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown option " + args[a]);
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			return;
+		}
+		Random random = new Random(seed);
+		ForkJoinPool pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+
 		/**
 		 * Declare objects needed for file input
 		 */
@@ -89,6 +128,12 @@ public class Draw {
 		userInput.close();
 		System.out.println(inputName + " will be created using " + triangles + " triangles. ");
 		System.out.println(outputFiles + " images will be created in the next " + runTime + " minutes.");
+		System.out.println("Images are scored on " + threads + " threads with random seed " + seed + ".");
+		
+		/**
+		 * Read the pixels of the input image once for every color and fitness calculation
+		 */
+		TargetImage target = new TargetImage(inputImage);
 		
 		/**
 		 * Initialize the Linked List of Generated Images for the first generation
@@ -97,16 +142,21 @@ public class Draw {
 		for (int n = 0; n < 50; n++) {
 			GeneratedImage i = new GeneratedImage();
 			i.initialize(inputImage.getWidth(), inputImage.getHeight());
-			i.setRandomTriangles(inputImage, triangles);
-			i.fitnessFunction(inputImage);
 			images.addLast(i);
 		}
+		ArrayList<GeneratedImage> firstGeneration = new ArrayList<GeneratedImage>(images);
+		long[] seeds = seeds(random, firstGeneration.size());
+		final int triangleCount = triangles;
+		forEach(pool, firstGeneration.size(), n -> {
+			firstGeneration.get(n).setRandomTriangles(target, triangleCount, new Random(seeds[n]));
+			firstGeneration.get(n).fitnessFunction(target);
+		});
 		
 		/**
 		 * Generate triangles and provide an update after each generation
 		 */
 		while(System.currentTimeMillis() < endTime) {
-			images = selection(images, inputImage);
+			images = selection(images, target, random, pool);
 			// Every 25 generations save the best Generated Image
 			if (generations % 25 == 0) {
 				String outputName = inputName.substring(0, inputName.lastIndexOf('.')) + "-g" + generations + "-" + images.getFirst().fitness + inputName.substring(inputName.lastIndexOf('.'));
@@ -140,48 +190,74 @@ public class Draw {
 		 * Inform user of program completion
 		 */
 		System.out.println("Program complete: " + inputName + " was created using " + triangles + " triangles. " + outputFiles + " images created in " + runTime + " minutes with " + generations + " generations.");
+		if (pool != null) pool.shutdown();
 	} // End of Main
 	
+	/**
+	 * Draws a seed for each image in order so every image has its own random numbers whichever thread it runs on
+	 * @param random source of random numbers shared by the whole run
+	 * @param n number of images
+	 * @return one seed per image
+	 */
+	static long[] seeds (Random random, int n) {
+		long[] seeds = new long[n];
+		for (int i = 0; i < n; i++) seeds[i] = random.nextLong();
+		return seeds;
+	}
+	
+	/**
+	 * Runs a task for every index from 0 to n - 1, split across the threads of a pool
+	 * Tasks must only change the image at their own index
+	 * @param pool threads to run the tasks on, or null to run them one after another on this thread
+	 * @param n number of tasks
+	 * @param task work done for one index
+	 */
+	static void forEach (ForkJoinPool pool, int n, IntConsumer task) {
+		if (pool == null) for (int i = 0; i < n; i++) task.accept(i);
+		// A parallel stream started inside the pool runs on the pool instead of the common pool
+		else pool.submit(() -> IntStream.range(0, n).parallel().forEach(task)).join();
+	}
+	
 	/**
 	 * Performs the Genetic Operation and Mutation Operations then updates the Fitness Function value for all Generated Images
 	 * Sorts the images based on Fitness Function value and Selection process selects 50 images to keep
+	 * Mutation and Fitness Function of each image run in parallel when a pool is given, each image with random numbers from its own seed
 	 * @param imageList Linked list of Generated Images used to produce the next generation of Generated Images 
 	 * @param inputImage Image the program is attempting to reproduce
+	 * @param random source of random numbers shared by the whole run
+	 * @param pool threads used to mutate and score the images, or null to use this thread
 	 * @return New Linked List of Generated Images
 	 */
-	public static LinkedList<GeneratedImage> selection (LinkedList<GeneratedImage> imageList, BufferedImage inputImage) {
+	public static LinkedList<GeneratedImage> selection (LinkedList<GeneratedImage> imageList, TargetImage inputImage, Random random, ForkJoinPool pool) {
 		// Add children generated from the images in the list
 		for (int i = 0; i < 50; i++) {
 			for (int j = 0; j < 20; j++) {
 				// Select a mate, images with better fitness function values are more likely to be chosen
-				int mate = (int) (50 * Math.pow(Math.random(), 2));
+				int mate = (int) (50 * Math.pow(random.nextDouble(), 2));
 				mate += (i == mate) ? 1 : 0; 
-				imageList.addLast(geneticOperation(imageList.get(i), imageList.get(mate)));			
+				imageList.addLast(geneticOperation(imageList.get(i), imageList.get(mate), random));			
 			}
 		}
 		// Chance of selection for mutation increases as fitness function increases
 		// 5 percent chance of aspect of a triangle being mutated
-		for (int i = 1; i < imageList.size(); i++) {
-			int mutate = Math.min(i, 25);
+		// Chances are found before any image is scored because duplicates are found from the fitness of the previous image
+		ArrayList<GeneratedImage> candidates = new ArrayList<GeneratedImage>(imageList);
+		int[] mutate = new int[candidates.size()];
+		for (int i = 1; i < candidates.size(); i++) {
+			mutate[i] = Math.min(i, 25);
 			// If the image is a duplicate it is automatically mutated
-			if (imageList.get(i).fitness == imageList.get(i - 1).fitness) mutate = 50;
-			imageList.get(i).mutation(inputImage, mutate, 50, 5, 100);
+			if (candidates.get(i).fitness == candidates.get(i - 1).fitness) mutate[i] = 50;
 		}
-		// Update Fitness Function values for all Generated Images
-		for (int i = 0; i < imageList.size(); i++) imageList.get(i).fitnessFunction(inputImage);
+		long[] seeds = seeds(random, candidates.size());
+		// Mutate and update Fitness Function values for all Generated Images
+		forEach(pool, candidates.size(), i -> {
+			if (i > 0) candidates.get(i).mutation(inputImage, mutate[i], 50, 5, 100, new Random(seeds[i]));
+			candidates.get(i).fitnessFunction(inputImage);
+		});
 		// Sort the images and keep the best 50 images
-		LinkedList<GeneratedImage> sortedList = new LinkedList<GeneratedImage>();
-		sortedList.add(imageList.getFirst());
-		for (int i = 1; i < imageList.size(); i++) {
-			if (imageList.get(i).fitness >= sortedList.getLast().fitness) {
-				sortedList.addLast(imageList.get(i));
-			} else for (int j = 0; j < sortedList.size(); j++) {
-				if (imageList.get(i).fitness < sortedList.get(j).fitness) {
-					sortedList.add(j, imageList.get(i));
-					j = sortedList.size();
-				}
-			}
-		}
+		// The sort is stable so images with equal fitness stay in the order they were added
+		candidates.sort(Comparator.comparingLong(image -> image.fitness));
+		LinkedList<GeneratedImage> sortedList = new LinkedList<GeneratedImage>(candidates);
 		// Keep the first 20 images and keep every other of the next 60 images for a total of 50
 		for (int i = 20; i < 50; i++) sortedList.remove(i);
 		while (sortedList.size() > 50) sortedList.removeLast();
@@ -193,9 +269,10 @@ public class Draw {
 	 * Traits are more likely to be chosen from the parent with a lower fitness function value 
 	 * @param parentA Generated Image to act as a parent
 	 * @param parentB Generated Image to act as a parent
+	 * @param random source of random numbers
 	 * @return new Generated Image with traits from both parent images
 	 */
-	public static GeneratedImage geneticOperation (GeneratedImage parentA, GeneratedImage parentB) {
+	public static GeneratedImage geneticOperation (GeneratedImage parentA, GeneratedImage parentB, Random random) {
 		// Create a new Generated Image
 		GeneratedImage child = new GeneratedImage();
 		child.initialize(Math.min(parentA.image.getWidth(), parentB.image.getWidth()), Math.min(parentA.image.getHeight(), parentB.image.getHeight()));
@@ -203,7 +280,7 @@ public class Draw {
 		// Copy triangles from either of the parents
 		for (int t = 0; t < Math.min(parentA.triangles.size(), parentB.triangles.size()); t++) {
 			Triangle tri = new Triangle();
-			if (parentA.fitness < Math.random() * (parentA.fitness + parentB.fitness)) {
+			if (parentA.fitness < random.nextDouble() * (parentA.fitness + parentB.fitness)) {
 				tri.x1 = parentA.triangles.get(t).x1;
 				tri.x2 = parentA.triangles.get(t).x2;
 				tri.x3 = parentA.triangles.get(t).x3;
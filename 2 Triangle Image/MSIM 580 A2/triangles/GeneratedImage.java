@@ -2,7 +2,10 @@ package triangles;
 
 import java.awt.Color;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.Random;
 
 /**
  * The Generated Image class consists of a Linked List of Triangles
@@ -18,121 +21,145 @@ public class GeneratedImage {
 	LinkedList<Triangle> triangles;
 	long fitness;
 	
+	// Sampled pixels drawn by the fitness function, one buffer per thread reused for every image
+	static final ThreadLocal<int[]> scratch = ThreadLocal.withInitial(() -> new int[0]);
+	
 	/**
 	 * Creates a blank image of dimensions w by h
+	 * A new image is already black so no pixels need to be set
 	 * @param w width of the image to generate
 	 * @param h height of the image to generate
 	 */
 	public void initialize (int w, int h) {
 		image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
-		for(int y = 0; y < image.getHeight(); y++) {
-			for(int x = 0; x < image.getWidth(); x++) {
-				image.setRGB(x, y, 0);
-			}
-		}
 	}
 
 	/**
 	 * Creates a specified number of random triangles within the dimensions of the image
-	 * @param i target image being reproduced using triangles
+	 * @param targetImage target image being reproduced using triangles
 	 * @param n number of triangles to generate
+	 * @param random source of random numbers
 	 */
-	public void setRandomTriangles (BufferedImage targetImage, int n) {
+	public void setRandomTriangles (TargetImage targetImage, int n, Random random) {
 		triangles = new LinkedList<Triangle>();
 		for(int i = 0; i < n; i++) {
 			Triangle t = new Triangle();
-			t.randomize(image.getWidth(), image.getHeight());
+			t.randomize(image.getWidth(), image.getHeight(), random);
 			triangles.add(t);
 			setTriangleColor(targetImage, i); // New line for updated submission
 		}
-		image = drawTriangles(triangles.size());
 	}
 	
 	/**
 	 * Sets the color of a triangle to the average color of the target image inside the triangle's area
 	 * New method for updated submission
+	 * Each row of the triangle is totaled from the ends of its span in the row prefix sums of the target image
 	 * @param i target image being reproduced using triangles
 	 * @param t index of the triangle to update
 	 */
-	public void setTriangleColor (BufferedImage i, int t) {
+	public void setTriangleColor (TargetImage i, int t) {
 		int r = 0;
 		int g = 0;
 		int b = 0;
 		int pixels = 0;
-		for(int y = triangles.get(t).yMin(); y <= triangles.get(t).yMax(); y++) {
-			for(int x = triangles.get(t).xMin(); x <= triangles.get(t).xMax(); x++) {
-				if (triangles.get(t).pointInside(x, y)) {
-					Color temp = new Color(i.getRGB(x, y), true);
-					r += temp.getRed();
-					g += temp.getGreen();
-					b += temp.getBlue();
-					pixels++;
-				}
-			}
+		Triangle tri = triangles.get(t);
+		for(int y = tri.yMin(); y <= tri.yMax(); y++) {
+			long span = tri.span(y);
+			int start = Triangle.spanStart(span);
+			int end = Triangle.spanEnd(span);
+			if (start > end) continue;
+			// The sums left of start are subtracted from the sums through end
+			int row = y * (i.width + 1);
+			r += i.red[row + end + 1] - i.red[row + start];
+			g += i.green[row + end + 1] - i.green[row + start];
+			b += i.blue[row + end + 1] - i.blue[row + start];
+			pixels += end - start + 1;
 		}
 		pixels = (pixels == 0) ? 1 : pixels;
 		r = r / pixels;
 		g = g / pixels;
 		b = b / pixels;
 		Color newColor = new Color(r, g, b);
-		triangles.get(t).rgb = newColor.getRGB();
-		triangles.get(t).color = newColor;
-		triangles.get(t).r = r;
-		triangles.get(t).g = g;
-		triangles.get(t).b = b;
+		tri.rgb = newColor.getRGB();
+		tri.color = newColor;
+		tri.r = r;
+		tri.g = g;
+		tri.b = b;
 	}
 	
 	/**
 	 * Generates an image with a specified number of triangles up to the total number of triangles
+	 * Pixels are written directly to the int array behind the image, each holding the red, green and blue bytes of the pixel
 	 * @param n number of triangles to add to the image
 	 * @return image generated with a specified number of triangles
 	 */
 	public BufferedImage drawTriangles (int n) {
-		for(int y = 0; y < image.getHeight(); y++) {
-			for(int x = 0; x < image.getWidth(); x++) {
-				image.setRGB(x, y, 0);
-			}
-		}
+		int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		int w = image.getWidth();
+		Arrays.fill(pixels, 0);
 		for (int i = 0; i < n && i < triangles.size(); i++) {
-			for(int y = triangles.get(i).yMin(); y <= triangles.get(i).yMax(); y++) {
-				for(int x = triangles.get(i).xMin(); x <= triangles.get(i).xMax(); x++) {
-					if (triangles.get(i).pointInside(x, y)) {
-						if (image.getRGB(x, y) == 0) {
-							image.setRGB(x, y, triangles.get(i).rgb);
-						} else {
-							Color current = new Color(image.getRGB(x, y), true);
-							int r = (int) ((current.getRed() + triangles.get(i).r) * 0.5);
-							int g = (int) ((current.getGreen() + triangles.get(i).g) * 0.5);
-							int b = (int) ((current.getBlue() + triangles.get(i).b) * 0.5);
-							Color newColor = new Color(r, g, b);
-							image.setRGB(x, y, newColor.getRGB());
-						}
-					}
+			Triangle t = triangles.get(i);
+			for(int y = t.yMin(); y <= t.yMax(); y++) {
+				long span = t.span(y);
+				// Every pixel is averaged with the triangle color, black pixels included, so a single triangle is drawn at half brightness
+				for(int p = y * w + Triangle.spanStart(span), end = y * w + Triangle.spanEnd(span); p <= end; p++) {
+					pixels[p] = average(pixels[p], t.rgb);
 				}
 			}
 		}
 		return image;
 	}
+
+	/**
+	 * Averages two colors one channel at a time, rounding each channel down
+	 * The lowest bit of each channel is dropped before halving so no channel carries into the next
+	 * @param a red, green and blue bytes of the first color
+	 * @param b red, green and blue bytes of the second color
+	 * @return red, green and blue bytes of the average color
+	 */
+	static int average (int a, int b) {
+		return ((a & 0xFEFEFE) >>> 1) + ((b & 0xFEFEFE) >>> 1) + (a & b & 0x010101);
+	}
 	
 	/**
 	 * Compares the generated image to a specified image and calculates a value representing the difference between the two images
+	 * Only the pixels the comparison samples are drawn, into a scratch buffer of the current thread, the image itself is not updated
 	 * @param i image to compare to the generated image
 	 * @return a value representing the difference between specified image and the generated image
 	 */
-	public void fitnessFunction (BufferedImage i) {
-		this.image = drawTriangles(triangles.size());
-		int w = Math.min(this.image.getWidth(), i.getWidth());
-		int h = Math.min(this.image.getHeight(), i.getHeight());
+	public void fitnessFunction (TargetImage i) {
+		int w = Math.min(this.image.getWidth(), i.width);
+		int h = Math.min(this.image.getHeight(), i.height);
+		// Every other pixel of every other row is compared, sample (x, y) is stored at (y / 2) * sw + x / 2
+		int sw = (w + 1) / 2;
+		int sh = (h + 1) / 2;
+		int[] samples = scratch.get();
+		if (samples.length < sw * sh) {
+			samples = new int[sw * sh];
+			scratch.set(samples);
+		}
+		Arrays.fill(samples, 0, sw * sh, 0);
+		for (Triangle t : triangles) {
+			for(int y = t.yMin() + (t.yMin() & 1); y <= t.yMax() && y < h; y += 2) {
+				long span = t.span(y);
+				// Round the start of the span up to an even x
+				int start = Triangle.spanStart(span);
+				start += start & 1;
+				int end = Math.min(Triangle.spanEnd(span), w - 1);
+				if (start > end) continue;
+				for(int p = (y / 2) * sw + start / 2, last = (y / 2) * sw + end / 2; p <= last; p++) {
+					samples[p] = average(samples[p], t.rgb);
+				}
+			}
+		}
 		long rgbDiff = 0;
 		for (int y = 0; y < h; y += 2) {
-			for (int x = 0; x < w; x += 2) {
-	            // Creating a Color object from pixel value
-				Color target = new Color(i.getRGB(x, y), true);
-				Color current = new Color(image.getRGB(x, y), true);
-	            // Retrieving the R G B values
-	            rgbDiff += Math.abs(target.getRed() - current.getRed());
-	            rgbDiff += Math.abs(target.getGreen() - current.getGreen());
-	            rgbDiff += Math.abs(target.getBlue() - current.getBlue());
+			for (int x = 0, p = (y / 2) * sw, q = y * i.width; x < w; x += 2, p++, q += 2) {
+				int target = i.rgb[q];
+				int current = samples[p];
+				rgbDiff += Math.abs(((target >> 16) & 0xFF) - ((current >> 16) & 0xFF));
+				rgbDiff += Math.abs(((target >> 8) & 0xFF) - ((current >> 8) & 0xFF));
+				rgbDiff += Math.abs((target & 0xFF) - (current & 0xFF));
 			}
 		}
 		this.fitness = rgbDiff;
@@ -143,20 +170,22 @@ public class GeneratedImage {
 	 * Odds of performing a mutation are based on specified parameters
 	 * There is a mNumerator / mDenominator chance that an image will be selected for mutation
 	 * There is a tNumerator / tDenominator chance that each aspect of a triangle in an image selected for mutation will be mutated
+	 * @param targetImage target image being reproduced using triangles
 	 * @param mNumerator Numerator of the chance that an image will be selected for mutation
 	 * @param mDenominator Denominator of the chance that an image will be selected for mutation
 	 * @param tNumerator Numerator of the chance that a triangle will be selected for mutation
 	 * @param tDenominator Denominator of the chance that a triangle will be selected for mutation
+	 * @param random source of random numbers
 	 */
-	public void mutation (BufferedImage targetImage, int mNumerator, int mDenominator, int tNumerator, int tDenominator) {
-		if (mNumerator > Math.random() * mDenominator) {
+	public void mutation (TargetImage targetImage, int mNumerator, int mDenominator, int tNumerator, int tDenominator, Random random) {
+		if (mNumerator > random.nextDouble() * mDenominator) {
 			for (int i = 0; i < triangles.size(); i++) {
-				if (tNumerator > Math.random() * tDenominator) triangles.get(i).x1 = (int) (Math.random() * image.getWidth());
-				if (tNumerator > Math.random() * tDenominator) triangles.get(i).x2 = (int) (Math.random() * image.getWidth());
-				if (tNumerator > Math.random() * tDenominator) triangles.get(i).x3 = (int) (Math.random() * image.getWidth());
-				if (tNumerator > Math.random() * tDenominator) triangles.get(i).y1 = (int) (Math.random() * image.getHeight());
-				if (tNumerator > Math.random() * tDenominator) triangles.get(i).y2 = (int) (Math.random() * image.getHeight());
-				if (tNumerator > Math.random() * tDenominator) triangles.get(i).y3 = (int) (Math.random() * image.getHeight());
+				if (tNumerator > random.nextDouble() * tDenominator) triangles.get(i).x1 = (int) (random.nextDouble() * image.getWidth());
+				if (tNumerator > random.nextDouble() * tDenominator) triangles.get(i).x2 = (int) (random.nextDouble() * image.getWidth());
+				if (tNumerator > random.nextDouble() * tDenominator) triangles.get(i).x3 = (int) (random.nextDouble() * image.getWidth());
+				if (tNumerator > random.nextDouble() * tDenominator) triangles.get(i).y1 = (int) (random.nextDouble() * image.getHeight());
+				if (tNumerator > random.nextDouble() * tDenominator) triangles.get(i).y2 = (int) (random.nextDouble() * image.getHeight());
+				if (tNumerator > random.nextDouble() * tDenominator) triangles.get(i).y3 = (int) (random.nextDouble() * image.getHeight());
 				setTriangleColor(targetImage, i); // New line for updated submission
 				/* Lines removed for updated submission
 				if (tNumerator > Math.random() * tDenominator) triangles.get(i).r = (int) (Math.random() * 255);
@@ -0,0 +1,48 @@
+package triangles;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * The Target Image class holds the image being reproduced in the forms the genetic algorithm reads most often
+ * The pixels are unpacked once into an int array, and each color channel is summed along every row so the total
+ * of any run of pixels in a row is the difference of two sums
+ * @author Ben Bissantz
+ *
+ */
+public class TargetImage {
+
+	// Dimensions, red green and blue bytes of each pixel, and row prefix sums of each channel
+	int width, height;
+	int[] rgb;
+	int[] red, green, blue;
+
+	/**
+	 * Reads every pixel of an image and builds the row prefix sums
+	 * Row y of each sum array starts at y * (width + 1), entry x of the row is the total of the pixels left of x
+	 * @param i image being reproduced using triangles
+	 */
+	public TargetImage (BufferedImage i) {
+		width = i.getWidth();
+		height = i.getHeight();
+		rgb = i.getRGB(0, 0, width, height, null, 0, width);
+		red = new int[height * (width + 1)];
+		green = new int[height * (width + 1)];
+		blue = new int[height * (width + 1)];
+		for(int y = 0; y < height; y++) {
+			for(int x = 0, p = y * width, s = y * (width + 1); x < width; x++, p++, s++) {
+				red[s + 1] = red[s] + ((rgb[p] >> 16) & 0xFF);
+				green[s + 1] = green[s] + ((rgb[p] >> 8) & 0xFF);
+				blue[s + 1] = blue[s] + (rgb[p] & 0xFF);
+			}
+		}
+	}
+
+	/**
+	 * @param x coordinate of the pixel
+	 * @param y coordinate of the pixel
+	 * @return red, green and blue bytes of the pixel
+	 */
+	public int getRGB (int x, int y) {
+		return rgb[y * width + x];
+	}
+}
@@ -1,6 +1,7 @@
 package triangles;
 
 import java.awt.Color;
+import java.util.Random;
 
 /**
  * The triangle class includes coordinate values for the corners of the triangle and the RGB color of the triangle
@@ -15,19 +16,23 @@ public class Triangle {
 	int y1, y2, y3;
 	int rgb, r, g, b;
 	Color color;
+
+	// Span of a row with no pixels inside the triangle
+	static final long EMPTY = span(1, 0);
 	
 	/**
 	 * Randomizes the values of the triangle points and color
 	 * @param x image width (maximum value of x coordinates)
 	 * @param y image height (maximum value of y coordinates)
+	 * @param random source of random numbers
 	 */
-	public void randomize (int x, int y) {
-		x1 = (int) (Math.random() * x);
-		x2 = (int) (Math.random() * x);
-		x3 = (int) (Math.random() * x);
-		y1 = (int) (Math.random() * y);
-		y2 = (int) (Math.random() * y);
-		y3 = (int) (Math.random() * y);
+	public void randomize (int x, int y, Random random) {
+		x1 = (int) (random.nextDouble() * x);
+		x2 = (int) (random.nextDouble() * x);
+		x3 = (int) (random.nextDouble() * x);
+		y1 = (int) (random.nextDouble() * y);
+		y2 = (int) (random.nextDouble() * y);
+		y3 = (int) (random.nextDouble() * y);
 		/* Lines removed from updated submission
 		r = (int) (Math.random() * 255);
 		g = (int) (Math.random() * 255);
@@ -55,6 +60,68 @@ public class Triangle {
 	    return ((d1 < 0) && (d2 < 0) && (d3 < 0) || (d1 > 0) && (d2 > 0) && (d3 > 0));
 	}
 	
+	/**
+	 * Find the pixels of a row that are inside the triangle
+	 * Each of the edge values of pointInside changes linearly along a row, so each edge bounds the row on one side and the
+	 * pixels inside are the single span where all three values have the sign of the triangle's area
+	 * Integer division finds the same pixels as pointInside, edge pixels and triangles with no area are never inside
+	 * @param y row of pixels
+	 * @return first x of the span in the upper 32 bits and last x in the lower 32 bits, the first x is larger when no pixel is inside
+	 */
+	public long span (int y) {
+		// Edge values are a * x + c, in the order of the edges of pointInside
+		int a1 = y1 - y2, c1 = -x2 * a1 - (x1 - x2) * (y - y2);
+		int a2 = y2 - y3, c2 = -x3 * a2 - (x2 - x3) * (y - y3);
+		int a3 = y3 - y1, c3 = -x1 * a3 - (x3 - x1) * (y - y1);
+		// The edge values always add up to twice the area, so only the sign of the area can be shared by all three
+		int area = c1 + c2 + c3;
+		if (area == 0) return EMPTY;
+		int sign = (area > 0) ? 1 : -1;
+		long span = span(xMin(), xMax());
+		span = clip(span, sign * a1, sign * c1);
+		span = clip(span, sign * a2, sign * c2);
+		return clip(span, sign * a3, sign * c3);
+	}
+
+	/**
+	 * Narrow a span to the pixels where an edge value is positive
+	 * a * x + c > 0 is x > -c / a for a positive a, x < c / -a for a negative a, and the whole row or none of it for no a
+	 * @param span span to narrow
+	 * @param a change in the edge value from one pixel to the next
+	 * @param c edge value at x = 0
+	 * @return narrowed span
+	 */
+	static long clip (long span, int a, int c) {
+		if (a > 0) return span(Math.max(spanStart(span), Math.floorDiv(-c, a) + 1), spanEnd(span));
+		if (a < 0) return span(spanStart(span), Math.min(spanEnd(span), -Math.floorDiv(-c, -a) - 1));
+		return (c > 0) ? span : EMPTY;
+	}
+
+	/**
+	 * @param start first x of a span
+	 * @param end last x of a span
+	 * @return both x values packed into a long
+	 */
+	static long span (int start, int end) {
+		return (long) start << 32 | (end & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param span span returned by span(y)
+	 * @return first x of the span
+	 */
+	static int spanStart (long span) {
+		return (int) (span >> 32);
+	}
+
+	/**
+	 * @param span span returned by span(y)
+	 * @return last x of the span
+	 */
+	static int spanEnd (long span) {
+		return (int) span;
+	}
+	
 	/**
 	 * Determine the minimum x value of the triangle
 	 * @return minimum x value of the triangle